@@ -37,33 +37,37 @@ public class BrownClusterExtract
 	{
 		BufferedReader reader = IOUtils.createBufferedReader(in);
 		Map<String,Set<String>> map = new HashMap<>();
-		Set<String> v;
 		String line;
 		String[] t;
-		int i, len;
 		
 		while ((line = reader.readLine()) != null)
 		{
 			t = Splitter.splitTabs(line);
-			v = new HashSet<String>();
-			len = t[0].length();
-			
-			for (i=2; ; i+=2)
+			map.put(t[1], getPrefixes(t[0]));
+		}
+		
+		return map;
+	}
+	
+	/** @return the prefixes of the path whose lengths are even, and the path itself. */
+	static public Set<String> getPrefixes(String path)
+	{
+		Set<String> v = new HashSet<String>();
+		int i, len = path.length();
+		
+		for (i=2; ; i+=2)
+		{
+			if (len <= i)
 			{
-				if (len <= i)
-				{
-					v.add(t[0].substring(0, len));
-					break;
-				}
-				else
-					v.add(t[0].substring(0, i));
-				
+				v.add(path.substring(0, len));
+				break;
 			}
+			else
+				v.add(path.substring(0, i));
 			
-			map.put(t[1], v);
 		}
 		
-		return map;
+		return v;
 	}
 	
 	static public void main(String[] args)
@@ -0,0 +1,514 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.bin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.kohsuke.args4j.Option;
+
+import edu.emory.mathcs.nlp.common.collection.ngram.Bigram;
+import edu.emory.mathcs.nlp.common.collection.ngram.Unigram;
+import edu.emory.mathcs.nlp.common.collection.tuple.ObjectDoublePair;
+import edu.emory.mathcs.nlp.common.collection.tuple.Pair;
+import edu.emory.mathcs.nlp.common.util.BinUtils;
+import edu.emory.mathcs.nlp.common.util.FileUtils;
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.common.util.Splitter;
+import edu.emory.mathcs.nlp.common.util.StringUtils;
+import edu.emory.mathcs.nlp.component.template.lexicon.EmbeddingFormat;
+import edu.emory.mathcs.nlp.component.template.lexicon.GazetteerMatcher;
+import edu.emory.mathcs.nlp.component.template.lexicon.GazetteerMatcherBuilder;
+import edu.emory.mathcs.nlp.component.template.lexicon.IndexedLexicon;
+import edu.emory.mathcs.nlp.component.template.lexicon.WordClusterLexicon;
+import edu.emory.mathcs.nlp.component.template.lexicon.WordEmbeddingTableWriter;
+
+/**
+ * Builds lexica for {@link edu.emory.mathcs.nlp.component.template.lexicon.GlobalLexica} from files or directories.
+ * Input files are distributed across threads, each of which keeps its own counts that are merged at the end.
+ * Word embeddings are written to {@link WordEmbeddingTableWriter} while being read.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class LexiconBuilder
+{
+	static final int BATCH_SIZE = 10000;
+	
+	@Option(name="-mode", usage="lexicon type (required: ambiguity_classes|word_clusters|word_embeddings|named_entity_gazetteers)", required=true, metaVar="<string>")
+	protected String mode;
+	@Option(name="-i", usage="input paths, separated by commas (required)", required=true, metaVar="<filepath>")
+	protected String input_path;
+	@Option(name="-ie", usage="input file extension (default: *)", required=false, metaVar="<string>")
+	protected String input_ext = "*";
+	@Option(name="-o", usage="output file (required)", required=true, metaVar="<filename>")
+	protected String output_file;
+	@Option(name="-threads", usage="# of threads (default: # of processors)", required=false, metaVar="<int>")
+	protected int threads = Runtime.getRuntime().availableProcessors();
+	
+	// ambiguity classes
+	@Option(name="-form", usage="column index of word forms in the input files (default: 1)", required=false, metaVar="<int>")
+	protected int form_column = 1;
+	@Option(name="-pos", usage="column index of part-of-speech tags in the input files (default: 3)", required=false, metaVar="<int>")
+	protected int pos_column = 3;
+	@Option(name="-cutoff", usage="ambiguity classes: minimum count of each word (default: 2)", required=false, metaVar="<int>")
+	protected int cutoff = 2;
+	@Option(name="-threshold", usage="ambiguity classes: minimum probability of each tag (default: 0.1)", required=false, metaVar="<double>")
+	protected double threshold = 0.1;
+	@Option(name="-lowercase", usage="ambiguity classes: lowercase word forms (default: false)", required=false)
+	protected boolean lowercase = false;
+	@Option(name="-indexed", usage="ambiguity classes: write IndexedLexicon instead of a serialized map (default: false)", required=false)
+	protected boolean indexed = false;
+	
+	// word embeddings
+	@Option(name="-binary", usage="word embeddings: input files are in the word2vec binary format (default: false)", required=false)
+	protected boolean binary = false;
+	@Option(name="-f", usage="word embeddings: storage format (default: float32|float16|int8)", required=false, metaVar="<string>")
+	protected String format = EmbeddingFormat.float32.name();
+	@Option(name="-skip", usage="word embeddings: skip words as Word2Vec2Map (default: false)", required=false)
+	protected boolean skip = false;
+	
+	// named entity gazetteers
+	@Option(name="-type_names", usage="named entity gazetteers: use file names as types instead of the indices in NERPrefixTreeExtract (default: false)", required=false)
+	protected boolean type_names = false;
+	
+	public LexiconBuilder() {}
+	
+	public LexiconBuilder(String[] args)
+	{
+		BinUtils.initArgs(args, this);
+		List<String> files = getInputFiles();
+		long st = System.currentTimeMillis();
+		
+		try
+		{
+			switch (mode)
+			{
+			case "ambiguity_classes"      : buildAmbiguityClasses(files); break;
+			case "word_clusters"          : buildWordClusters(files); break;
+			case "word_embeddings"        : buildWordEmbeddings(files); break;
+			case "named_entity_gazetteers": buildNamedEntityGazetteers(files); break;
+			default: throw new IllegalArgumentException("Unknown mode: "+mode);
+			}
+		}
+		catch (Exception e) {e.printStackTrace();}
+		
+		BinUtils.LOG.info(String.format("Time: %d ms\n", System.currentTimeMillis() - st));
+	}
+	
+	protected List<String> getInputFiles()
+	{
+		List<String> files = new ArrayList<>();
+		
+		for (String path : Splitter.splitCommas(input_path))
+			files.addAll(FileUtils.getFileList(path, input_ext));
+		
+		BinUtils.LOG.info(String.format("Input files: %d\n", files.size()));
+		return files;
+	}
+	
+	protected void writeObject(Object obj) throws IOException
+	{
+		ObjectOutputStream out = IOUtils.createObjectXZBufferedOutputStream(output_file);
+		out.writeObject(obj);
+		out.close();
+	}
+
+//	=================================== AMBIGUITY CLASSES ===================================
+	
+	public void buildAmbiguityClasses(List<String> files) throws Exception
+	{
+		Queue<String> queue = new ConcurrentLinkedQueue<>(files);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Bigram<String,String>>> shards = new ArrayList<>();
+		
+		for (int i=0; i<threads; i++)
+			shards.add(executor.submit(() -> countAmbiguityClasses(queue)));
+		
+		executor.shutdown();
+		Bigram<String,String> bigram = new Bigram<>();
+		
+		for (Future<Bigram<String,String>> shard : shards)
+			merge(bigram, shard.get());
+		
+		Map<String,List<String>> map = getAmbiguityClasses(bigram);
+		
+		if (indexed)
+			IndexedLexicon.save(map, output_file);
+		else
+			writeObject(map);
+	}
+	
+	/** Counts the part-of-speech tags of word forms in the files polled from the queue. */
+	protected Bigram<String,String> countAmbiguityClasses(Queue<String> files) throws IOException
+	{
+		Bigram<String,String> bigram = new Bigram<>();
+		BufferedReader reader;
+		String filename, line, form;
+		String[] t;
+		
+		while ((filename = files.poll()) != null)
+		{
+			BinUtils.LOG.info(filename+"\n");
+			reader = IOUtils.createBufferedReader(filename);
+			
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.trim().isEmpty()) continue;
+				t = Splitter.splitTabs(line);
+				form = StringUtils.toSimplifiedForm(t[form_column], lowercase);
+				if (!skipAmbiguityClass(form)) bigram.add(form, t[pos_column]);
+			}
+			
+			reader.close();
+		}
+		
+		return bigram;
+	}
+	
+	private boolean skipAmbiguityClass(String form)
+	{
+		for (int i=0; i<form.length(); i++)
+		{
+			if (form.charAt(i) == '_' || form.charAt(i) >= 128)
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/** Adds all counts in the source to the target. */
+	static public <T1,T2>void merge(Bigram<T1,T2> target, Bigram<T1,T2> source)
+	{
+		for (Entry<T1,Unigram<T2>> e : source.entrySet())
+		{
+			for (T2 value : e.getValue().keySet())
+				target.add(e.getKey(), value, e.getValue().get(value));
+		}
+	}
+	
+	protected Map<String,List<String>> getAmbiguityClasses(Bigram<String,String> bigram)
+	{
+		Map<String,List<String>> map = new HashMap<>();
+		List<ObjectDoublePair<String>> list;
+		Unigram<String> unigram;
+		int tags = 0;
+		
+		for (Entry<String,Unigram<String>> e : bigram.entrySet())
+		{
+			unigram = e.getValue();
+			if (unigram.getTotalCount() < cutoff) continue;
+			list = unigram.toList(threshold);
+			if (list.isEmpty()) continue;
+			if (list.size() == 1 && (list.get(0).o.equals("NNP") || list.get(0).o.equals("NNPS"))) continue;
+			
+			Collections.sort(list, Collections.reverseOrder());
+			map.put(e.getKey(), list.stream().map(p -> p.o).collect(Collectors.toList()));
+			tags += list.size();
+		}
+		
+		BinUtils.LOG.info(String.format("Words: %d, Avg tags: %5.4f\n", map.size(), (double)tags/map.size()));
+		return map;
+	}
+
+//	=================================== WORD CLUSTERS ===================================
+	
+	/** Reads Brown clusters, where each line consists of a path, a word, and its count separated by tabs. */
+	public void buildWordClusters(List<String> files) throws Exception
+	{
+		WordClusterLexicon lexicon = new WordClusterLexicon();
+		BufferedReader reader;
+		String line;
+		String[] t;
+		
+		for (String filename : files)
+		{
+			reader = IOUtils.createBufferedReader(filename);
+			
+			while ((line = reader.readLine()) != null)
+			{
+				t = Splitter.splitTabs(line);
+				lexicon.add(t[1], BrownClusterExtract.getPrefixes(t[0]));
+			}
+			
+			reader.close();
+		}
+		
+		lexicon.trim();
+		BinUtils.LOG.info(String.format("Words: %d, Clusters: %d, Prefixes: %d\n", lexicon.size(), lexicon.getClusterSize(), lexicon.getPrefixSize()));
+		writeObject(lexicon);
+	}
+
+//	=================================== WORD EMBEDDINGS ===================================
+	
+	/** The output file is deleted if any input file fails to be read. */
+	public void buildWordEmbeddings(List<String> files) throws Exception
+	{
+		WordEmbeddingTableWriter writer = null;
+		
+		for (String filename : files)
+		{
+			BinUtils.LOG.info(filename+"\n");
+			writer = binary ? readBinaryEmbeddings(filename, writer) : readTextEmbeddings(filename, writer);
+		}
+		
+		if (writer != null)
+		{
+			BinUtils.LOG.info(String.format("Words: %d\n", writer.size()));
+			writer.close();
+		}
+	}
+	
+	protected WordEmbeddingTableWriter getWriter(WordEmbeddingTableWriter writer, int dimension) throws IOException
+	{
+		return (writer != null) ? writer : new WordEmbeddingTableWriter(output_file, dimension, EmbeddingFormat.valueOf(format));
+	}
+	
+	/**
+	 * Reads the word2vec text format, where the first line (the vocabulary size and the dimension) is optional.
+	 * Batches of lines are parsed by multiple threads; rows are written in the order of the lines.
+	 */
+	protected WordEmbeddingTableWriter readTextEmbeddings(String filename, WordEmbeddingTableWriter writer) throws Exception
+	{
+		BufferedReader reader = IOUtils.createBufferedReader(filename);
+		String line = reader.readLine();
+		if (line == null) {reader.close(); return writer;}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Deque<Future<Pair<List<String>,List<float[]>>>> batches = new ArrayDeque<>();
+		List<String> batch = new ArrayList<>();
+		
+		try
+		{
+			String[] t = Splitter.splitSpace(line.trim());
+			
+			if (t.length == 2)
+				writer = getWriter(writer, Integer.parseInt(t[1]));
+			else
+			{
+				writer = getWriter(writer, t.length - 1);
+				batch.add(line);
+			}
+			
+			while ((line = reader.readLine()) != null)
+			{
+				batch.add(line);
+				
+				if (batch.size() == BATCH_SIZE)
+				{
+					submitTextEmbeddings(executor, batches, batch, writer);
+					batch = new ArrayList<>();
+				}
+			}
+			
+			submitTextEmbeddings(executor, batches, batch, writer);
+			while (!batches.isEmpty()) addTextEmbeddings(batches.poll(), writer);
+		}
+		catch (Exception e)
+		{
+			if (writer != null) writer.abort();
+			throw e;
+		}
+		finally
+		{
+			executor.shutdownNow();
+			reader.close();
+		}
+		
+		return writer;
+	}
+	
+	/** Parses the lines in a thread; the oldest batch is written first if too many batches are in flight. */
+	private void submitTextEmbeddings(ExecutorService executor, Deque<Future<Pair<List<String>,List<float[]>>>> batches, List<String> lines, WordEmbeddingTableWriter writer) throws Exception
+	{
+		if (batches.size() >= threads * 2) addTextEmbeddings(batches.poll(), writer);
+		batches.add(executor.submit(() -> parseTextEmbeddings(lines)));
+	}
+	
+	private Pair<List<String>,List<float[]>> parseTextEmbeddings(List<String> lines)
+	{
+		List<String>  words = new ArrayList<>(lines.size());
+		List<float[]> embeddings = new ArrayList<>(lines.size());
+		String[] t;
+		float[] v;
+		
+		for (String line : lines)
+		{
+			t = Splitter.splitSpace(line.trim());
+			if (skip && Word2Vec2Map.skip(t[0])) continue;
+			v = new float[t.length - 1];
+			
+			for (int j=0; j<v.length; j++)
+				v[j] = Float.parseFloat(t[j+1]);
+			
+			words.add(t[0]);
+			embeddings.add(v);
+		}
+		
+		return new Pair<>(words, embeddings);
+	}
+	
+	/** Waits for the batch and writes its embeddings; a failure in parsing the batch is rethrown. */
+	private void addTextEmbeddings(Future<Pair<List<String>,List<float[]>>> batch, WordEmbeddingTableWriter writer) throws Exception
+	{
+		Pair<List<String>,List<float[]>> p;
+		
+		try
+		{
+			p = batch.get();
+		}
+		catch (ExecutionException e)
+		{
+			throw (e.getCause() instanceof Exception) ? (Exception)e.getCause() : e;
+		}
+		
+		for (int i=0; i<p.o1.size(); i++)
+			writer.add(p.o1.get(i), p.o2.get(i));
+	}
+	
+	/** Reads the word2vec binary format: "V D\n" followed by "word float[D]" in little-endian. */
+	protected WordEmbeddingTableWriter readBinaryEmbeddings(String filename, WordEmbeddingTableWriter writer) throws IOException
+	{
+		DataInputStream in = new DataInputStream(new BufferedInputStream(IOUtils.createFileInputStream(filename), 1 << 20));
+		
+		try
+		{
+			String[] t = Splitter.splitSpace(readToken(in, '\n').trim());
+			final int V = Integer.parseInt(t[0]);
+			final int D = Integer.parseInt(t[1]);
+			writer = getWriter(writer, D);
+			
+			ByteBuffer buffer = ByteBuffer.allocate(D * 4).order(ByteOrder.LITTLE_ENDIAN);
+			String word;
+			float[] v;
+			
+			for (int i=0; i<V; i++)
+			{
+				word = readToken(in, ' ').trim();
+				in.readFully(buffer.array());
+				if (skip && Word2Vec2Map.skip(word)) continue;
+				v = new float[D];
+				buffer.asFloatBuffer().get(v);
+				writer.add(word, v);
+			}
+		}
+		catch (Exception e)
+		{
+			if (writer != null) writer.abort();
+			throw e;
+		}
+		finally
+		{
+			in.close();
+		}
+		
+		return writer;
+	}
+	
+	/** @return the UTF-8 string until the delimiter. */
+	private String readToken(DataInputStream in, char delimiter) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		int b;
+		
+		while ((b = in.read()) != delimiter)
+		{
+			if (b < 0) throw new EOFException();
+			bytes.write(b);
+		}
+		
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+//	=================================== NAMED ENTITY GAZETTEERS ===================================
+	
+	/** The types of the gazetteers are given by {@link #getGazetteerTypes(List)}. */
+	public void buildNamedEntityGazetteers(List<String> files) throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<List<String[]>>> entries = new ArrayList<>();
+		GazetteerMatcherBuilder builder = new GazetteerMatcherBuilder();
+		List<String> types = getGazetteerTypes(files);
+		
+		for (String filename : files)
+			entries.add(executor.submit(() -> NERPrefixTreeExtract.readGazetteers(IOUtils.createFileInputStream(filename))));
+		
+		executor.shutdown();
+		
+		for (int i=0; i<files.size(); i++)
+		{
+			for (String[] t : entries.get(i).get())
+				builder.add(t, 0, t.length, types.get(i));
+		}
+		
+		GazetteerMatcher matcher = builder.build();
+		BinUtils.LOG.info(String.format("Types: %d, States: %d\n", matcher.getTypes().length, matcher.getStateSize()));
+		writeObject(matcher);
+	}
+	
+	/**
+	 * @return the type of each file. With {@code -type_names}, it is the name of the file without the extension.
+	 * Otherwise, it is the index of the file in {@link NERPrefixTreeExtract#GAZETTEERS} as in the models trained on its output,
+	 * and files not in the list are indexed after it in the order given.
+	 */
+	protected List<String> getGazetteerTypes(List<String> files)
+	{
+		List<String> names  = Arrays.asList(NERPrefixTreeExtract.GAZETTEERS);
+		List<String> types  = new ArrayList<>(files.size());
+		int          others = names.size();
+		
+		for (String filename : files)
+		{
+			String name = FileUtils.getBaseName(filename);
+			
+			if (type_names)
+				types.add((name.lastIndexOf('.') > 0) ? name.substring(0, name.lastIndexOf('.')) : name);
+			else
+			{
+				int i = names.indexOf(name);
+				types.add(Integer.toString((i >= 0) ? i : others++));
+			}
+		}
+		
+		return types;
+	}
+	
+	static public void main(String[] args)
+	{
+		new LexiconBuilder(args);
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.bin;
+
+import java.io.ObjectInputStream;
+import java.util.Map;
+
+import org.kohsuke.args4j.Option;
+
+import edu.emory.mathcs.nlp.common.util.BinUtils;
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.template.lexicon.IndexedLexicon;
+
+/**
+ * Converts a serialized lexicon map (e.g., ambiguity classes, word clusters) into {@link IndexedLexicon}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class LexiconMap2Index
+{
+	@Option(name="-i", usage="input file of the serialized map (required)", required=true, metaVar="<filename>")
+	protected String input_file;
+	@Option(name="-o", usage="output indexed lexicon file (required)", required=true, metaVar="<filename>")
+	protected String output_file;
+	
+	public LexiconMap2Index() {}
+	
+	public LexiconMap2Index(String[] args)
+	{
+		BinUtils.initArgs(args, this);
+		
+		try
+		{
+			ObjectInputStream in = IOUtils.createObjectXZBufferedInputStream(input_file);
+			Map<?,?> map = (Map<?,?>)in.readObject();
+			in.close();
+			
+			BinUtils.LOG.info(String.format("Entries: %d\n", map.size()));
+			IndexedLexicon.save(cast(map), output_file);
+		}
+		catch (Exception e) {e.printStackTrace();}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Map<String,?> cast(Map<?,?> map)
+	{
+		return (Map<String,?>)map;
+	}
+	
+	static public void main(String[] args)
+	{
+		new LexiconMap2Index(args);
+	}
+}
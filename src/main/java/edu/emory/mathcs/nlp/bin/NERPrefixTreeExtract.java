@@ -19,54 +19,62 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectOutputStream;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.List;
 
-import edu.emory.mathcs.nlp.common.collection.tree.PrefixNode;
-import edu.emory.mathcs.nlp.common.collection.tree.PrefixTree;
 import edu.emory.mathcs.nlp.common.util.IOUtils;
 import edu.emory.mathcs.nlp.common.util.Splitter;
 import edu.emory.mathcs.nlp.common.util.StringUtils;
+import edu.emory.mathcs.nlp.component.template.lexicon.GazetteerMatcher;
+import edu.emory.mathcs.nlp.component.template.lexicon.GazetteerMatcherBuilder;
 
 /**
+ * Builds {@link GazetteerMatcher} from gazetteer files, where each line is an entry.
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
  */
 public class NERPrefixTreeExtract
 {
-	static public PrefixTree<String,Set<String>> getNERPrefixTree(final String DIR) throws IOException
+	/** The gazetteer files, whose types are their indices in this array. */
+	static public final String[] GAZETTEERS = {
+			"known_corporations.txt",
+			"known_countries.txt",
+			"known_currencies.txt",
+			"known_jobs.txt",
+			"known_names.txt",
+			"known_nationalities.txt",
+			"known_places.txt",
+			"known_states.txt",
+			"WikiArtWork.txt",
+			"WikiCompetitionsBattlesEvents.txt",
+			"WikiFilms.txt",
+			"WikiLocations.txt",
+			"WikiManMadeObjectNames.txt",
+			"WikiOrganizations.txt",
+			"WikiPeople.txt",
+			"WikiSongs.txt"
+	};
+	
+	static public GazetteerMatcher getGazetteerMatcher(final String DIR) throws IOException
 	{
-		final String[] PATH = {
-				"known_corporations.txt",
-				"known_countries.txt",
-				"known_currencies.txt",
-				"known_jobs.txt",
-				"known_names.txt",
-				"known_nationalities.txt",
-				"known_places.txt",
-				"known_states.txt",
-				"WikiArtWork.txt",
-				"WikiCompetitionsBattlesEvents.txt",
-				"WikiFilms.txt",
-				"WikiLocations.txt",
-				"WikiManMadeObjectNames.txt",
-				"WikiOrganizations.txt",
-				"WikiPeople.txt",
-				"WikiSongs.txt"
-		};
-		
-		PrefixTree<String,Set<String>> tree = new PrefixTree<>();
+		GazetteerMatcherBuilder builder = new GazetteerMatcherBuilder();
 		
-		for (int i=0; i<PATH.length; i++)
-			populateNERPrefixTree(IOUtils.createFileInputStream(DIR+"/"+PATH[i]), tree, Integer.toString(i));
+		for (int i=0; i<GAZETTEERS.length; i++)
+			addGazetteers(IOUtils.createFileInputStream(DIR+"/"+GAZETTEERS[i]), builder, Integer.toString(i));
 		
-		return tree;
+		return builder.build();
+	}
+	
+	static public void addGazetteers(InputStream in, GazetteerMatcherBuilder builder, String type) throws IOException
+	{
+		for (String[] t : readGazetteers(in))
+			builder.add(t, 0, t.length, type);
 	}
 	
-	static private void populateNERPrefixTree(InputStream in, PrefixTree<String,Set<String>> tree, String type) throws IOException
+	/** @return the entries in the gazetteer file, where each entry consists of the keys of its tokens. */
+	static public List<String[]> readGazetteers(InputStream in) throws IOException
 	{
 		BufferedReader reader = IOUtils.createBufferedReader(in);
-		PrefixNode<String,Set<String>> node;
-		Set<String> set;
+		List<String[]> list = new ArrayList<>();
 		String line;
 		String[] t;
 		
@@ -74,20 +82,18 @@ public class NERPrefixTreeExtract
 		{
 			t = Splitter.splitSpace(line.trim());
 			if (t.length == 1 && t[0].length() == 1) continue;
-			node = tree.add(t, 0, t.length, NERPrefixTreeExtract::toKey);
-			set  = node.getValue();
 			
-			if (set == null)
-			{
-				set = new TreeSet<>();
-				node.setValue(set);
-			}
+			for (int i=0; i<t.length; i++)
+				t[i] = toKey(t[i]);
 			
-			set.add(type);
+			list.add(t);
 		}
+		
+		reader.close();
+		return list;
 	}
 	
-	static private String toKey(String s)
+	static public String toKey(String s)
 	{
 		return StringUtils.toSimplifiedForm(s);
 //		return StringUtils.toUndigitalizedForm(s);
@@ -102,9 +108,9 @@ public class NERPrefixTreeExtract
 		
 		try
 		{
-			PrefixTree<String,Set<String>> tree = NERPrefixTreeExtract.getNERPrefixTree(dir);
+			GazetteerMatcher matcher = NERPrefixTreeExtract.getGazetteerMatcher(dir);
 			ObjectOutputStream out = IOUtils.createObjectXZBufferedOutputStream(outputFile);
-			out.writeObject(tree);
+			out.writeObject(matcher);
 			out.close();
 		}
 		catch (Exception e) {e.printStackTrace();}
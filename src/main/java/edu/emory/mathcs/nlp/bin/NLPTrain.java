@@ -61,6 +61,20 @@ public class NLPTrain
 	protected String mode = null;
 	@Option(name="-cv", usage="# of cross-validation folds (default: 0)", required=false, metaVar="<int>")
 	protected int cv = 0;
+	@Option(name="-cache", usage="keep the training files in memory across epochs (default: false)", required=false)
+	protected boolean cache_corpus = false;
+	@Option(name="-columnar", usage="extract features from columnar views of sentences (default: false)", required=false)
+	protected boolean columnar = false;
+	@Option(name="-share", usage="cache token-level features in the sentences (default: false)", required=false)
+	protected boolean share_features = false;
+	@Option(name="-renumber", usage="renumber the features by their counts after the first epoch (default: false)", required=false)
+	protected boolean renumber_features = false;
+	@Option(name="-renumber_type", usage="renumber the features of the same type together (default: false)", required=false)
+	protected boolean renumber_by_type = false;
+	@Option(name="-cache_instances", usage="train the epochs on the gold path from the instances recorded in the first one (default: false)", required=false)
+	protected boolean cache_instances = false;
+	@Option(name="-instance_memory", usage="megabytes of recorded instances kept in memory; the rest is written to temporary files (default: 1024)", required=false, metaVar="<int>")
+	protected int instance_memory = 1024;
 	
 	public <N extends AbstractNLPNode<N>, S extends NLPState<N>>void train(String[] args)
 	{
@@ -68,6 +82,12 @@ public class NLPTrain
 		List<String> trainFiles    = FileUtils.getFileList(train_path  , train_ext);
 		List<String> developFiles  = FileUtils.getFileList(develop_path, develop_ext);
 		OnlineTrainer<N,S> trainer = createOnlineTrainer();
+		trainer.setCacheCorpus(cache_corpus);
+		trainer.setColumnar(columnar);
+		trainer.setShareFeatures(share_features);
+		trainer.setRenumberFeatures(renumber_features, renumber_by_type);
+		trainer.setCacheInstances(cache_instances);
+		trainer.setInstanceMemory((long)instance_memory << 20);
 		
 		Collections.sort(trainFiles);
 		Collections.sort(developFiles);
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.bin;
+
+import java.io.ObjectInputStream;
+import java.util.Map;
+
+import org.kohsuke.args4j.Option;
+
+import edu.emory.mathcs.nlp.common.util.BinUtils;
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.template.lexicon.EmbeddingFormat;
+import edu.emory.mathcs.nlp.component.template.lexicon.WordEmbeddingTable;
+
+/**
+ * Converts the word embeddings serialized by {@link Word2Vec2Map} into {@link WordEmbeddingTable}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class Word2VecMap2Table
+{
+	@Option(name="-i", usage="input file serialized by Word2Vec2Map (required)", required=true, metaVar="<filename>")
+	protected String input_file;
+	@Option(name="-o", usage="output table file (required)", required=true, metaVar="<filename>")
+	protected String output_file;
+	@Option(name="-f", usage="storage format (default: float32|float16|int8)", required=false, metaVar="<string>")
+	protected String format = EmbeddingFormat.float32.name();
+	
+	public Word2VecMap2Table() {}
+	
+	@SuppressWarnings("unchecked")
+	public Word2VecMap2Table(String[] args)
+	{
+		BinUtils.initArgs(args, this);
+		
+		try
+		{
+			ObjectInputStream in = IOUtils.createObjectXZBufferedInputStream(input_file);
+			Map<String,float[]> map = (Map<String,float[]>)in.readObject();
+			in.close();
+			
+			WordEmbeddingTable table = WordEmbeddingTable.fromMap(map);
+			EmbeddingFormat f = EmbeddingFormat.valueOf(format);
+			if (f != table.getFormat()) table = table.quantize(f);
+			BinUtils.LOG.info(String.format("Words: %d, Dimension: %d, Format: %s, Bytes: %d\n", table.size(), table.getDimension(), f, table.getByteSize()));
+			table.save(output_file);
+		}
+		catch (Exception e) {e.printStackTrace();}
+	}
+	
+	static public void main(String[] args)
+	{
+		new Word2VecMap2Table(args);
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.bin;
+
+import java.util.List;
+
+import org.kohsuke.args4j.Option;
+
+import edu.emory.mathcs.nlp.common.collection.tuple.DoubleIntPair;
+import edu.emory.mathcs.nlp.common.util.BinUtils;
+import edu.emory.mathcs.nlp.common.util.FileUtils;
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.template.OnlineComponent;
+import edu.emory.mathcs.nlp.component.template.lexicon.EmbeddingFormat;
+import edu.emory.mathcs.nlp.component.template.lexicon.GlobalLexica;
+import edu.emory.mathcs.nlp.component.template.lexicon.GlobalLexicon;
+import edu.emory.mathcs.nlp.component.template.lexicon.WordEmbeddingTable;
+import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
+import edu.emory.mathcs.nlp.component.template.reader.TSVReader;
+import edu.emory.mathcs.nlp.component.template.state.NLPState;
+import edu.emory.mathcs.nlp.component.template.train.OnlineTrainer;
+
+/**
+ * Evaluates a trained model on the development set using the word embeddings quantized in each storage format.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class WordEmbeddingQuantize extends ModelReduce
+{
+	@Option(name="-o", usage="output prefix of the quantized tables (optional)", required=false, metaVar="<filename>")
+	protected String output_prefix = null;
+	
+	public <N extends AbstractNLPNode<N>, S extends NLPState<N>>void quantize(String[] args)
+	{
+		BinUtils.initArgs(args, this);
+		OnlineTrainer<N,S> trainer = createOnlineTrainer();
+		
+		List<String> developFiles = FileUtils.getFileList(develop_path, develop_ext);
+		GlobalLexica<N> lexica = trainer.createGlobalLexica(IOUtils.createFileInputStream(configuration_file));
+		GlobalLexicon<WordEmbeddingTable> embeddings = lexica.getWordEmbeddings();
+		
+		if (embeddings == null)
+		{
+			BinUtils.LOG.error("No word embeddings in the configuration\n");
+			return;
+		}
+		
+		BinUtils.LOG.info("Loading the model\n");
+		OnlineComponent<N,S> component = readComponent(IOUtils.createFileInputStream(previous_model_file), IOUtils.createFileInputStream(configuration_file));
+		TSVReader<N> reader = trainer.createTSVReader(component.getConfiguration().getReaderFieldMap());
+		WordEmbeddingTable original = embeddings.getLexicon();
+		WordEmbeddingTable table;
+		
+		DoubleIntPair p = trainer.evaluate(developFiles, component, lexica, reader);
+		BinUtils.LOG.info(String.format("%-7s: %s, bytes = %11d, N/S = %6d\n", original.getFormat(), component.getEval().toString(), original.getByteSize(), p.i));
+		double baseline = p.d;
+		
+		for (EmbeddingFormat format : EmbeddingFormat.values())
+		{
+			if (format == original.getFormat()) continue;
+			table = original.quantize(format);
+			embeddings.setLexicon(table);
+			p = trainer.evaluate(developFiles, component, lexica, reader);
+			BinUtils.LOG.info(String.format("%-7s: %s, bytes = %11d, N/S = %6d, delta = %5.2f\n", format, component.getEval().toString(), table.getByteSize(), p.i, p.d - baseline));
+			
+			try
+			{
+				if (output_prefix != null) table.save(output_prefix+"."+format);
+			}
+			catch (Exception e) {e.printStackTrace();}
+		}
+	}
+	
+	static public void main(String[] args)
+	{
+		new WordEmbeddingQuantize().quantize(args);
+	}
+}
@@ -16,10 +16,13 @@
 package edu.emory.mathcs.nlp.component.dep;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
 
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 import edu.emory.mathcs.nlp.learning.util.MLUtils;
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.IntCollection;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
 
@@ -37,6 +40,10 @@ public class DEPLabelCandidate<N extends AbstractNLPNode<N>> implements Serializ
 	private IntSet LEFT_ARC;
 	private IntSet RIGHT_ARC;
 	
+	// compiled from the sets above
+	private transient BitSet           added;
+	private transient volatile int[][] sorted;
+	
 	public DEPLabelCandidate()
 	{
 		X_SHIFT          = new IntOpenHashSet();
@@ -47,24 +54,30 @@ public class DEPLabelCandidate<N extends AbstractNLPNode<N>> implements Serializ
 		RIGHT_ARC        = new IntOpenHashSet();
 	}
 
-	public void add(String label, int index)
+	/** Adds the index'th label decoded in the transition table. */
+	public void add(DEPTransitionTable transitions, int index)
 	{
-		DEPLabel lb = new DEPLabel(label);
+		if (added == null) added = new BitSet();
+		if (added.get(index)) return;
+		added.set(index);
+		sorted = null;
+		byte arc  = transitions.getArc (index);
+		byte list = transitions.getList(index);
 		
-		if (lb.isList(DEPState.LIST_SHIFT))
+		if (list == DEPTransitionTable.LIST_SHIFT)
 			X_SHIFT.add(index);
 		
-		if (lb.isArc(DEPState.ARC_LEFT))
+		if (arc == DEPTransitionTable.ARC_LEFT)
 			LEFT_ARC.add(index);
-		else if (lb.isArc(DEPState.ARC_RIGHT))
+		else if (arc == DEPTransitionTable.ARC_RIGHT)
 			RIGHT_ARC.add(index);
 		else
 		{
 			NO_X.add(index);
-			if (!lb.isList(DEPState.LIST_REDUCE)) NO_SHIFT_OR_PASS.add(index);
+			if (list != DEPTransitionTable.LIST_REDUCE) NO_SHIFT_OR_PASS.add(index);
 		}
 		
-		if (!(lb.isArc(DEPState.ARC_NO) && lb.isList(DEPState.LIST_REDUCE)))
+		if (!(arc == DEPTransitionTable.ARC_NO && list == DEPTransitionTable.LIST_REDUCE))
 			NOT_NO_REDUCE.add(index);
 	}
 	
@@ -85,10 +98,31 @@ public class DEPLabelCandidate<N extends AbstractNLPNode<N>> implements Serializ
 		return null;
 	}
 	
-	public int[] getLabelIndices(N stack, N input, float[] scores)
+	/** @return the sorted indices of the candidate labels given the stack and the input of the state if restricted; otherwise, {@code null}. */
+	public int[] getCandidates(DEPState<N> state)
+	{
+		int[][] sorted = getSorted();
+		N stack = state.getStack();
+		N input = state.getInput();
+		
+		if (stack.getID() == 0)
+			return sorted[0];
+		
+		if (state.isDescendant(stack, input))
+			return sorted[1];
+		
+		if (state.isDescendant(input, stack))
+			return stack.hasDependencyHead() ? sorted[1] : sorted[2];
+		
+		if (!stack.hasDependencyHead())
+			return sorted[3];
+
+		return null;
+	}
+	
+	public int[] getLabelIndices(DEPState<N> state, float[] scores)
 	{
-		IntSet candidates = get(stack, input);
-		return MLUtils.argmax2(scores, candidates);
+		return MLUtils.argmax2(scores, getCandidates(state));
 	}
 	
 	public IntSet getLeftArcs()
@@ -101,6 +135,45 @@ public class DEPLabelCandidate<N extends AbstractNLPNode<N>> implements Serializ
 		return RIGHT_ARC;
 	}
 	
+	/** @return the sorted indices of the left-arc labels, or {@code null} if none. */
+	public int[] getLeftArcIndices()
+	{
+		return getSorted()[4];
+	}
+	
+	/** @return the sorted indices of the right-arc labels, or {@code null} if none. */
+	public int[] getRightArcIndices()
+	{
+		return getSorted()[5];
+	}
+	
+	/** Empty sets are compiled into {@code null} so that all labels are considered, as {@link MLUtils#argmax2(float[], IntCollection)} does. */
+	private int[][] getSorted()
+	{
+		int[][] s = sorted;
+		if (s != null) return s;
+		
+		synchronized (this)
+		{
+			if (sorted == null)
+			{
+				IntSet[] sets = {X_SHIFT, NO_X, NO_SHIFT_OR_PASS, NOT_NO_REDUCE, LEFT_ARC, RIGHT_ARC};
+				s = new int[sets.length][];
+				
+				for (int i=0; i<sets.length; i++)
+				{
+					if (sets[i].isEmpty()) continue;
+					s[i] = sets[i].toIntArray();
+					Arrays.sort(s[i]);
+				}
+				
+				sorted = s;
+			}
+			
+			return sorted;
+		}
+	}
+	
 	public void remap(Int2IntMap map)
 	{
 		X_SHIFT          = remap(map, X_SHIFT);
@@ -109,6 +182,8 @@ public class DEPLabelCandidate<N extends AbstractNLPNode<N>> implements Serializ
 		NOT_NO_REDUCE    = remap(map, NOT_NO_REDUCE);
 		LEFT_ARC         = remap(map, LEFT_ARC);
 		RIGHT_ARC        = remap(map, RIGHT_ARC);
+		added  = null;
+		sorted = null;
 	}
 	
 	private IntSet remap(Int2IntMap map, IntSet set)
@@ -17,14 +17,16 @@ package edu.emory.mathcs.nlp.component.dep;
 
 import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import edu.emory.mathcs.nlp.common.treebank.DEPTagEn;
 import edu.emory.mathcs.nlp.component.template.OnlineComponent;
 import edu.emory.mathcs.nlp.component.template.eval.Eval;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
+import edu.emory.mathcs.nlp.component.template.node.DependencyTreeIndex;
 import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 import edu.emory.mathcs.nlp.learning.util.MLUtils;
-import it.unimi.dsi.fastutil.ints.IntSet;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -33,6 +35,9 @@ public class DEPParser<N extends AbstractNLPNode<N>> extends OnlineComponent<N,D
 {
 	private static final long serialVersionUID = 7031031976396726276L;
 	private DEPLabelCandidate<N> label_candidates;
+	/** Static oracles of the training sentences, reused while the same sentences are trained in later epochs. */
+	private transient Map<N[],int[]> oracle_cache;
+	private transient DEPTransitionTable transitions;
 
 	public DEPParser()
 	{
@@ -57,7 +62,9 @@ public class DEPParser<N extends AbstractNLPNode<N>> extends OnlineComponent<N,D
 	@Override
 	protected DEPState<N> initState(N[] nodes)
 	{
-		return new DEPState<>(nodes);
+		if (!isTrain()) return new DEPState<>(nodes, getTransitionTable(), null);
+		if (oracle_cache == null) oracle_cache = new WeakHashMap<>();
+		return new DEPState<>(nodes, getTransitionTable(), oracle_cache);
 	}
 	
 	@Override
@@ -68,13 +75,19 @@ public class DEPParser<N extends AbstractNLPNode<N>> extends OnlineComponent<N,D
 	@Override
 	protected void putLabel(String label, int index)
 	{
-		label_candidates.add(label, index);
+		label_candidates.add(getTransitionTable(), index);
+	}
+	
+	@Override
+	protected float[] scores(DEPState<N> state, FeatureVector x)
+	{
+		return optimizer.scores(x, label_candidates.getCandidates(state));
 	}
 	
 	@Override
 	protected int[] getPrediction(DEPState<N> state, float[] scores)
 	{
-		return label_candidates.getLabelIndices(state.getStack(), state.getInput(), scores);
+		return label_candidates.getLabelIndices(state, scores);
 	}
 	
 	public DEPLabelCandidate<N> getLabelCandidates()
@@ -82,11 +95,20 @@ public class DEPParser<N extends AbstractNLPNode<N>> extends OnlineComponent<N,D
 		return label_candidates;
 	}
 	
+	/** @return the transition table decoding the labels of the optimizer. */
+	public synchronized DEPTransitionTable getTransitionTable()
+	{
+		if (transitions == null) transitions = new DEPTransitionTable();
+		transitions.update(optimizer.getLabelMap());
+		return transitions;
+	}
+	
 //	============================== POST-PROCESS ==============================
 
 	@Override
 	protected void postProcess(DEPState<N> state)
 	{
+		DEPTransitionTable transitions = getTransitionTable();
 		N[] nodes = state.getNodes();
 		DEPTriple max;
 		N node;
@@ -102,16 +124,19 @@ public class DEPParser<N extends AbstractNLPNode<N>> extends OnlineComponent<N,D
 				processHeadless(state, max, nodes, i,  1);
 				
 				if (max.isNull())
-					node.setDependencyHead(nodes[0], DEPTagEn.DEP_ROOT);
+					state.setDependencyHead(node, nodes[0], DEPTagEn.DEP_ROOT);
 				else
-					node.setDependencyHead(nodes[max.headId], new DEPLabel(optimizer.getLabel(max.yhat)).getDeprel());
+					state.setDependencyHead(node, nodes[max.headId], transitions.getDeprel(max.yhat));
 			}
 		}
+		
+		// the tree is final so that subtree and path queries by later components can use the index
+		if (isDecode()) DependencyTreeIndex.attach(nodes);
 	}
 
 	void processHeadless(DEPState<N> state, DEPTriple max, N[] nodes, int currID, int dir)
 	{
-		IntSet labels = (dir > 0) ? label_candidates.getLeftArcs() : label_candidates.getRightArcs();
+		int[] labels = (dir > 0) ? label_candidates.getLeftArcIndices() : label_candidates.getRightArcIndices();
 		N head, node = nodes[currID];
 		int yhat, window = 0;
 		float[] scores;
@@ -122,13 +147,13 @@ public class DEPParser<N extends AbstractNLPNode<N>> extends OnlineComponent<N,D
 			if (++window > 5) break;
 			head = nodes[headID];
 
-			if (!head.isDescendantOf(node))
+			if (!state.isDescendant(head, node))
 			{
 				if (dir > 0)	state.reset(currID, headID);
 				else			state.reset(headID, currID);
 				
 				x = feature_template.createFeatureVector(state, isTrain());
-				scores = optimizer.scores(x);
+				scores = optimizer.scores(x, labels);
 				yhat = MLUtils.argmax(scores, labels);
 				if (max.score < scores[yhat]) max.set(headID, yhat, scores[yhat]);	
 			}
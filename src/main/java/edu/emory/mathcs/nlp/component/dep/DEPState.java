@@ -17,12 +17,14 @@ package edu.emory.mathcs.nlp.component.dep;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import edu.emory.mathcs.nlp.common.constant.StringConst;
 import edu.emory.mathcs.nlp.component.template.eval.Eval;
 import edu.emory.mathcs.nlp.component.template.feature.FeatureItem;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
+import edu.emory.mathcs.nlp.component.template.node.SentenceColumns;
 import edu.emory.mathcs.nlp.component.template.state.NLPState;
 import edu.emory.mathcs.nlp.learning.util.LabelMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
@@ -38,18 +40,45 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 	public static final String LIST_SHIFT  = "S";
 	public static final String LIST_REDUCE = "R";
 	public static final String LIST_PASS   = "P";
+	/** Sentences longer than this fall back to {@link AbstractNLPNode#isDescendantOf(AbstractNLPNode)}, for the ancestor bitset is quadratic in size. */
+	public static final int MAX_ANCESTOR_SIZE = 512;
 	
 	private List<DEPArc<N>> oracle;
+	private int[]           oracle_heads;		// node id -> gold head id, or -1
+	private int[]           oracle_rightmost;	// node id -> id of the rightmost gold dependent, or -1
+	private int[]           oracle_leftmost;	// node id -> id of the leftmost gold dependent, or -1
 	private IntArrayList    stack;
 	private IntArrayList    inter;
 	private int             input;
 	
+	private DEPTransitionTable transitions;
+	
+	// bit (i * ancestor_words * 64 + j) is set if node j is an ancestor of node i
+	private long[] ancestors;
+	private int    ancestor_words;
+	
+	// static oracle
+	private Map<N[],int[]>  oracle_cache;
+	private int[]           oracle_path;	// null once the state leaves the gold path
+	private int             oracle_step;
+	
 	public DEPState(N[] nodes)
+	{
+		this(nodes, new DEPTransitionTable(), null);
+	}
+	
+	/**
+	 * @param transitions decoded labels shared across states.
+	 * @param oracleCache sentence -> label ids of its static oracle; the sentence must keep the same gold tree while it is in the cache.
+	 */
+	public DEPState(N[] nodes, DEPTransitionTable transitions, Map<N[],int[]> oracleCache)
 	{
 		super(nodes);
 		stack = new IntArrayList();
 		inter = new IntArrayList();
 		input = 0;
+		this.transitions = transitions;
+		oracle_cache = oracleCache;
 		shift();
 	}
 	
@@ -59,13 +88,32 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 	public boolean saveOracle()
 	{
 		oracle = Arrays.stream(nodes).map(n -> n.clearDependencies()).collect(Collectors.toList());
-		return oracle.stream().filter(n -> n.getNode() != null).findFirst().isPresent();
+		ancestors = null;
+		oracle_heads     = new int[nodes.length];
+		oracle_rightmost = new int[nodes.length];
+		oracle_leftmost  = new int[nodes.length];
+		Arrays.fill(oracle_rightmost, -1);
+		Arrays.fill(oracle_leftmost , -1);
+		boolean b = false;
+		int h;
+		
+		for (int i=0; i<nodes.length; i++)
+		{
+			N head = oracle.get(i).getNode();
+			oracle_heads[i] = h = (head != null) ? head.getID() : -1;
+			if (h < 0) continue;
+			if (oracle_leftmost[h] < 0) oracle_leftmost[h] = i;
+			oracle_rightmost[h] = i;
+			b = true;
+		}
+		
+		return b;
 	}
 	
 	@Override
 	public void resetOracle()
 	{
-		for (int i=1; i<nodes.length; i++)
+		for (int i=0; i<nodes.length; i++)
 			nodes[i].clearDependencies();
 		
 		for (int i=1; i<nodes.length; i++)
@@ -73,6 +121,8 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 			DEPArc<N> o = oracle.get(i);
 			nodes[i].setDependencyHead(o.getNode(), o.getLabel());
 		}
+		
+		ancestors = null;
 	}
 	
 	@Override
@@ -82,6 +132,27 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 		return label.toString();
 	}
 	
+	/**
+	 * While the state follows the gold path, the label is taken from the static oracle of the sentence,
+	 * which is computed once by {@link #getStaticOracle(LabelMap)} and reused from the oracle cache if any.
+	 */
+	@Override
+	public int getOracle(LabelMap map)
+	{
+		if (oracle_step == 0 && oracle_path == null)
+		{
+			if (oracle_cache != null) oracle_path = oracle_cache.get(nodes);
+			
+			if (oracle_path == null)
+			{
+				oracle_path = getStaticOracle(map);
+				if (oracle_cache != null) oracle_cache.put(nodes, oracle_path);
+			}
+		}
+		
+		return (oracle_path != null) ? oracle_path[oracle_step] : map.add(getOracle());
+	}
+	
 	public DEPLabel getOracleLabel()
 	{
 		N stack = getStack();
@@ -92,7 +163,7 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 		// left arc
 		gold = oracle.get(stack.getID());
 		
-		if (gold.isNode(input) && !input.isDescendantOf(stack))
+		if (gold.isNode(input) && !isDescendant(input, stack))
 		{
 			list = isOracleReduce(true) ? LIST_REDUCE : LIST_PASS;
 			return new DEPLabel(ARC_LEFT, list, gold.getLabel());
@@ -101,7 +172,7 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 		// right arc
 		gold = oracle.get(input.getID());
 		
-		if (gold.isNode(stack) && !stack.isDescendantOf(input))
+		if (gold.isNode(stack) && !isDescendant(stack, input))
 		{
 			list = isOracleShift() ? LIST_SHIFT : LIST_PASS;
 			return new DEPLabel(ARC_RIGHT, list, gold.getLabel());
@@ -119,18 +190,18 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 	private boolean isOracleShift()
 	{
 		// if head(input) < stack
-		N stack = getStack();
+		int s = stack.topInt();
 		
-		if (oracle.get(input).getNode().getID() < stack.getID())
+		if (oracle_heads[input] < s)
 			return false;
 		
 		// if child(input) < stack
-		N input = getInput();
-		int i = 0;
-
-		while ((stack = peekStack(--i)) != null)
+		if (oracle_leftmost[input] < 0 || oracle_leftmost[input] > s)
+			return true;
+		
+		for (int i=stack.size()-2; i>=0; i--)
 		{
-			if (oracle.get(stack.getID()).isNode(input))
+			if (oracle_heads[stack.getInt(i)] == input)
 				return false;
 		}
 		
@@ -141,19 +212,86 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 	private boolean isOracleReduce(boolean hasHead)
 	{
 		// if stack has no head
-		N stack = getStack();
-		
-		if (!hasHead && !stack.hasDependencyHead())
+		if (!hasHead && !getStack().hasDependencyHead())
 			return false;
 		
 		// if child(stack) > input 
-		for (int i=input+1; i<nodes.length; i++)
+		return oracle_rightmost[stack.topInt()] <= input;
+	}
+	
+	/**
+	 * @return the label ids of the transitions from the initial state to the terminal state following the gold tree.
+	 * The gold path makes only gold arcs so that no descendant check is needed, and each transition takes constant time except for passes.
+	 */
+	private int[] getStaticOracle(LabelMap map)
+	{
+		IntArrayList path  = new IntArrayList(nodes.length * 2);
+		IntArrayList stack = new IntArrayList();
+		IntArrayList inter = new IntArrayList();
+		boolean[] attached = new boolean[nodes.length];
+		int[] inStack = new int[nodes.length];	// head id -> # of its gold dependents in the stack
+		int s, i, h;
+		String arc, list, deprel;
+		
+		push(stack, 0, inStack);
+		
+		for (i=1; i<nodes.length; )
 		{
-			if (oracle.get(i).isNode(stack))
-				return false;
+			s = stack.topInt();
+			
+			if (oracle_heads[s] == i)
+			{
+				arc = ARC_LEFT;
+				list = (oracle_rightmost[s] <= i) ? LIST_REDUCE : LIST_PASS;
+				deprel = oracle.get(s).getLabel();
+				attached[s] = true;
+			}
+			else if (oracle_heads[i] == s)
+			{
+				arc = ARC_RIGHT;
+				list = isStaticShift(s, i, inStack) ? LIST_SHIFT : LIST_PASS;
+				deprel = oracle.get(i).getLabel();
+				attached[i] = true;
+			}
+			else
+			{
+				arc = ARC_NO;
+				if      (isStaticShift(s, i, inStack))				list = LIST_SHIFT;
+				else if (attached[s] && oracle_rightmost[s] <= i)	list = LIST_REDUCE;
+				else												list = LIST_PASS;
+				deprel = StringConst.EMPTY;
+			}
+			
+			path.add(map.add(new DEPLabel(arc, list, deprel).toString()));
+			
+			if (list.equals(LIST_SHIFT))
+			{
+				while (!inter.isEmpty()) push(stack, inter.popInt(), inStack);
+				push(stack, i++, inStack);
+			}
+			else
+			{
+				s = stack.popInt();
+				if ((h = oracle_heads[s]) >= 0) inStack[h]--;
+				if (list.equals(LIST_PASS)) inter.push(s);
+			}
 		}
 		
-		return true;
+		return path.toIntArray();
+	}
+	
+	/** Called by {@link #getStaticOracle(LabelMap)}. */
+	private boolean isStaticShift(int s, int i, int[] inStack)
+	{
+		return oracle_heads[i] >= s && inStack[i] - (oracle_heads[s] == i ? 1 : 0) == 0;
+	}
+	
+	/** Called by {@link #getStaticOracle(LabelMap)}. */
+	private void push(IntArrayList stack, int id, int[] inStack)
+	{
+		int h = oracle_heads[id];
+		if (h >= 0) inStack[h]++;
+		stack.push(id);
 	}
 	
 //	====================================== TRANSITION ======================================
@@ -161,27 +299,34 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 	@Override
 	public void next(LabelMap map, int[] top2, float[] scores)
 	{
-		DEPLabel label = new DEPLabel(map.getLabel(top2[0]));
-		N  stack = getStack();
-		N  input = getInput();
+		int label = top2[0];
+		
+		if (oracle_path != null && oracle_path[oracle_step++] != label)
+			oracle_path = null;
 		
-		if (label.isArc(ARC_LEFT))
+		if (label >= transitions.size()) transitions.update(map);
+		N stack = getStack();
+		N input = getInput();
+		
+		switch (transitions.getArc(label))
 		{
-			stack.setDependencyHead(input, label.getDeprel());
-			if (label.isList(LIST_REDUCE)) reduce();
+		case DEPTransitionTable.ARC_LEFT:
+			setDependencyHead(stack, input, transitions.getDeprel(label));
+			if (transitions.getList(label) == DEPTransitionTable.LIST_REDUCE) reduce();
 			else pass();
-		}
-		else if (label.isArc(ARC_RIGHT))
-		{
-			input.setDependencyHead(stack, label.getDeprel());
-			if (label.isList(LIST_SHIFT)) shift();
-			else pass();
-		}
-		else
-		{
-			if (label.isList(LIST_SHIFT)) shift();
-			else if (label.isList(LIST_REDUCE)) reduce();
+			break;
+		case DEPTransitionTable.ARC_RIGHT:
+			setDependencyHead(input, stack, transitions.getDeprel(label));
+			if (transitions.getList(label) == DEPTransitionTable.LIST_SHIFT) shift();
 			else pass();
+			break;
+		default:
+			switch (transitions.getList(label))
+			{
+			case DEPTransitionTable.LIST_SHIFT : shift();  break;
+			case DEPTransitionTable.LIST_REDUCE: reduce(); break;
+			default                            : pass();
+			}
 		}
 	}
 	
@@ -207,6 +352,79 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 		inter.push(stack.popInt());
 	}
 	
+//	====================================== ANCESTORS ======================================
+	
+	/**
+	 * Sets the head of the node, and updates the ancestors of the node and its descendants.
+	 * Heads must be set through this method while {@link #isDescendant(AbstractNLPNode, AbstractNLPNode)} is in use.
+	 */
+	public void setDependencyHead(N node, N head, String label)
+	{
+		node.setDependencyHead(head, label);
+		if (ancestors != null) updateAncestors(node.getID());
+	}
+	
+	/**
+	 * @return {@code true} if the node is a descendant of the ancestor, as {@link AbstractNLPNode#isDescendantOf(AbstractNLPNode)},
+	 * in constant time unless the sentence is longer than {@link #MAX_ANCESTOR_SIZE}.
+	 */
+	public boolean isDescendant(N node, N ancestor)
+	{
+		if (nodes.length > MAX_ANCESTOR_SIZE) return node.isDescendantOf(ancestor);
+		if (ancestors == null) initAncestors();
+		int i = node.getID(), j = ancestor.getID();
+		return (ancestors[i * ancestor_words + (j >>> 6)] & (1L << j)) != 0;
+	}
+	
+	private void initAncestors()
+	{
+		ancestor_words = (nodes.length + 63) >>> 6;
+		ancestors = new long[nodes.length * ancestor_words];
+		N head;
+		
+		for (int i=0; i<nodes.length; i++)
+		{
+			head = nodes[i].getDependencyHead();
+			
+			for (int k=0; head != null && k<nodes.length; k++, head=head.getDependencyHead())
+				setAncestor(i, head.getID());
+		}
+	}
+	
+	/** Recomputes the ancestors of the subtree rooted by the node, top-down. */
+	private void updateAncestors(int id)
+	{
+		IntArrayList queue = new IntArrayList();
+		int i, j, h, begin;
+		N head;
+		
+		queue.add(id);
+		
+		for (int k=0; k<queue.size() && k<nodes.length; k++)
+		{
+			i = queue.getInt(k);
+			begin = i * ancestor_words;
+			head = nodes[i].getDependencyHead();
+			
+			if (head == null)
+				Arrays.fill(ancestors, begin, begin + ancestor_words, 0L);
+			else
+			{
+				h = head.getID();
+				System.arraycopy(ancestors, h * ancestor_words, ancestors, begin, ancestor_words);
+				setAncestor(i, h);
+			}
+			
+			for (N dep : nodes[i].getDependentList())
+				queue.add(dep.getID());
+		}
+	}
+	
+	private void setAncestor(int node, int ancestor)
+	{
+		ancestors[node * ancestor_words + (ancestor >>> 6)] |= 1L << ancestor;
+	}
+	
 //	====================================== NODE ======================================
 
 	/**
@@ -246,6 +464,13 @@ public class DEPState<N extends AbstractNLPNode<N>> extends NLPState<N>
 		return getInput(0);
 	}
 	
+	/** The tree is left out of the view since the heads change at every transition. */
+	@Override
+	public void initColumns()
+	{
+		columns = new SentenceColumns<>(nodes, false);
+	}
+	
 	@Override
 	public N getNode(FeatureItem item)
 	{
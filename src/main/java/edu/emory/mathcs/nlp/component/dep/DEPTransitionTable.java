@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.dep;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import edu.emory.mathcs.nlp.learning.util.LabelMap;
+import edu.emory.mathcs.nlp.learning.util.StringPool;
+
+/**
+ * Transition labels (e.g., "L_R_nsubj") decoded into arc types, list operations, and dependency labels indexed by label ids.
+ * Labels are decoded by {@link #update(LabelMap)} as they are added to the label map.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DEPTransitionTable implements Serializable
+{
+	private static final long serialVersionUID = 3862301486245370781L;
+	static public final byte ARC_LEFT    = 0;
+	static public final byte ARC_RIGHT   = 1;
+	static public final byte ARC_NO      = 2;
+	static public final byte LIST_SHIFT  = 0;
+	static public final byte LIST_REDUCE = 1;
+	static public final byte LIST_PASS   = 2;
+	
+	private byte[]   arcs;
+	private byte[]   lists;
+	private String[] deprels;
+	private volatile int size;
+	
+	public DEPTransitionTable()
+	{
+		arcs    = new byte[0];
+		lists   = new byte[0];
+		deprels = new String[0];
+	}
+	
+	/** Decodes the labels added to the map since the last update. */
+	public void update(LabelMap map)
+	{
+		if (size < map.size()) decode(map);
+	}
+	
+	private synchronized void decode(LabelMap map)
+	{
+		int mapSize = map.size();
+		if (size >= mapSize) return;
+		byte[]   arcs    = Arrays.copyOf(this.arcs   , mapSize);
+		byte[]   lists   = Arrays.copyOf(this.lists  , mapSize);
+		String[] deprels = Arrays.copyOf(this.deprels, mapSize);
+		DEPLabel label;
+		
+		for (int i=size; i<mapSize; i++)
+		{
+			label = new DEPLabel(map.getLabel(i));
+			arcs   [i] = toArc (label.getArc());
+			lists  [i] = toList(label.getList());
+			deprels[i] = StringPool.LABELS.get(label.getDeprel());
+		}
+		
+		this.arcs    = arcs;
+		this.lists   = lists;
+		this.deprels = deprels;
+		size = mapSize;
+	}
+	
+	static private byte toArc(String arc)
+	{
+		switch (arc)
+		{
+		case DEPState.ARC_LEFT : return ARC_LEFT;
+		case DEPState.ARC_RIGHT: return ARC_RIGHT;
+		default                : return ARC_NO;
+		}
+	}
+	
+	static private byte toList(String list)
+	{
+		switch (list)
+		{
+		case DEPState.LIST_SHIFT : return LIST_SHIFT;
+		case DEPState.LIST_REDUCE: return LIST_REDUCE;
+		default                  : return LIST_PASS;
+		}
+	}
+	
+	/** @return one of {@link #ARC_LEFT}, {@link #ARC_RIGHT}, {@link #ARC_NO}. */
+	public byte getArc(int label)
+	{
+		return arcs[label];
+	}
+	
+	/** @return one of {@link #LIST_SHIFT}, {@link #LIST_REDUCE}, {@link #LIST_PASS}. */
+	public byte getList(int label)
+	{
+		return lists[label];
+	}
+	
+	/** @return the dependency label pooled in {@link StringPool#LABELS}. */
+	public String getDeprel(int label)
+	{
+		return deprels[label];
+	}
+	
+	/** @return the number of decoded labels. */
+	public int size()
+	{
+		return size;
+	}
+}
@@ -62,6 +62,13 @@ public class DOCAnalyzer<N extends AbstractNLPNode<N>,S extends DOCState<N>> ext
 		feature_template = new DOCFeatureTemplate<N,S>(config.getFeatureTemplateElement(), getHyperParameter());
 	}
 	
+	/** The features of a document do not depend on any prediction. */
+	@Override
+	public boolean isStaticInstances()
+	{
+		return true;
+	}
+	
 	@Override
 	public Eval createEvaluator()
 	{
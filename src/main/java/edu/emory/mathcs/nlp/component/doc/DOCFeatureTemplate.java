@@ -30,9 +30,12 @@ import edu.emory.mathcs.nlp.common.util.XMLUtils;
 import edu.emory.mathcs.nlp.component.template.feature.FeatureItem;
 import edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate;
 import edu.emory.mathcs.nlp.component.template.feature.Field;
+import edu.emory.mathcs.nlp.component.template.lexicon.WordClusterLexicon;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
 import edu.emory.mathcs.nlp.learning.util.SparseVector;
+import it.unimi.dsi.fastutil.ints.Int2FloatMap;
+import it.unimi.dsi.fastutil.ints.Int2FloatOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2FloatMap;
 import it.unimi.dsi.fastutil.objects.Object2FloatOpenHashMap;
 
@@ -72,6 +75,7 @@ public class DOCFeatureTemplate<N extends AbstractNLPNode<N>, S extends DOCState
 		
 		for (i=0; i<feature_list.size(); i++,type++)
 		{
+			if (addBagOfClusters(x, type, state, feature_list_type.get(i), isTrain)) continue;
 			t = getWeightedFeatures(state, feature_list.get(i), feature_list_type.get(i));
 			if (t != null) for (ObjectFloatPair<String> s : t) add(x, type, s.o, s.f, isTrain);
 		}
@@ -117,22 +121,40 @@ public class DOCFeatureTemplate<N extends AbstractNLPNode<N>, S extends DOCState
 		case bag_of_clusters:
 		case bag_of_words_stopwords:
 		case bag_of_clusters_stopwords:
-			return map.entrySet().stream().map(e -> new ObjectFloatPair<>(e.getKey(), 1f)).collect(Collectors.toList());
 		case bag_of_words_count:
 		case bag_of_clusters_count:
 		case bag_of_words_stopwords_count:
 		case bag_of_clusters_stopwords_count:
-			return map.entrySet().stream().map(e -> new ObjectFloatPair<>(e.getKey(), e.getValue())).collect(Collectors.toList());
 		case bag_of_words_norm:
 		case bag_of_clusters_norm:
 		case bag_of_words_stopwords_norm:
 		case bag_of_clusters_stopwords_norm:
-//			float total = (float)map.entrySet().stream().mapToDouble(e -> e.getValue()).sum();
-			return map.entrySet().stream().map(e -> new ObjectFloatPair<>(e.getKey(), (float)MathUtils.sigmoid(e.getValue()))).collect(Collectors.toList());
+			return map.entrySet().stream().map(e -> new ObjectFloatPair<>(e.getKey(), getBagOfLexiconsWeight(e.getValue(), type))).collect(Collectors.toList());
 		default: return null;
 		}
 	}
 	
+	/** @param count the number of occurrences of the lexicon in the document. */
+	protected float getBagOfLexiconsWeight(float count, Field type)
+	{
+		switch (type)
+		{
+		case bag_of_words_count:
+		case bag_of_clusters_count:
+		case bag_of_words_stopwords_count:
+		case bag_of_clusters_stopwords_count:
+			return count;
+		case bag_of_words_norm:
+		case bag_of_clusters_norm:
+		case bag_of_words_stopwords_norm:
+		case bag_of_clusters_stopwords_norm:
+//			float total = (float)map.entrySet().stream().mapToDouble(e -> e.getValue()).sum();
+			return (float)MathUtils.sigmoid(count);
+		default:
+			return 1f;
+		}
+	}
+	
 	protected Object2FloatMap<String> getBagOfWords(S state, FeatureItem[] items, boolean stopwords)
 	{
 		Object2FloatMap<String> map = new Object2FloatOpenHashMap<>();
@@ -184,6 +206,49 @@ public class DOCFeatureTemplate<N extends AbstractNLPNode<N>, S extends DOCState
 		return map;
 	}
 	
+	/**
+	 * Adds the bag of clusters by their prefix ids in {@link WordClusterLexicon}.
+	 * @return false if the type is not a bag of clusters or the word clusters are not from {@link WordClusterLexicon}.
+	 */
+	protected boolean addBagOfClusters(SparseVector x, int type, S state, Field field, boolean isTrain)
+	{
+		boolean stopwords;
+		
+		switch (field)
+		{
+		case bag_of_clusters:
+		case bag_of_clusters_norm:
+		case bag_of_clusters_count:
+			stopwords = false; break;
+		case bag_of_clusters_stopwords:
+		case bag_of_clusters_stopwords_norm:
+		case bag_of_clusters_stopwords_count:
+			stopwords = true; break;
+		default: return false;
+		}
+		
+		Int2FloatMap map = new Int2FloatOpenHashMap();
+		WordClusterLexicon lexicon = null;
+		
+		for (N[] nodes : state.getDocument(stopwords))
+		{
+			for (int i=1; i<nodes.length; i++)
+			{
+				if (!nodes[i].hasWordClusters()) continue;
+				if (nodes[i].getWordClusterLexicon() == null || (lexicon != null && lexicon != nodes[i].getWordClusterLexicon())) return false;
+				lexicon = nodes[i].getWordClusterLexicon();
+				
+				for (int id : nodes[i].getWordClusterIds())
+					map.merge(id, 1f, (oldCount, newCount) -> oldCount + newCount);
+			}
+		}
+		
+		for (Int2FloatMap.Entry e : map.int2FloatEntrySet())
+			add(x, type, lexicon, e.getIntKey(), getBagOfLexiconsWeight(e.getFloatValue(), field), isTrain);
+		
+		return true;
+	}
+	
 	@Override
 	public float[] createDenseVector(S state)
 	{
@@ -193,21 +258,20 @@ public class DOCFeatureTemplate<N extends AbstractNLPNode<N>, S extends DOCState
 	
 	public float[] getEmbeddings(S state, boolean average)
 	{
-		float[] w, v = null;
+		float[] v = null;
 		int count = 0;
 		N node;
 		
-		for (N[] nodes : state.getDocument())
+		for (N[] nodes : state.getDocument(true))
 		{
 			for (int i=1; i<nodes.length; i++)
 			{
 				node = nodes[i];
 				
-				if (!node.isStopWord() && node.hasWordEmbedding())
+				if (node.hasWordEmbedding())
 				{
-					w = node.getWordEmbedding();
-					if (v == null) v = new float[w.length];
-					MathUtils.add(v, w);
+					if (v == null) v = new float[node.getWordEmbeddingSize()];
+					node.addWordEmbedding(v);
 					count++;
 				}
 			}
@@ -43,33 +43,33 @@ public class DOCState<N extends AbstractNLPNode<N>> extends NLPState<N>
 		super(document);
 		feat_key = key;
 		key_node = document.get(0)[1];
-		non_stopwords = getNonStopWords(document);
 		reinit();
 	}
 	
+	/**
+	 * Relies on the stop-word flags of the nodes set by {@link edu.emory.mathcs.nlp.component.template.lexicon.GlobalLexica}.
+	 * Sentences without stop words are shared with the document.
+	 */
 	@SuppressWarnings("unchecked")
 	public List<N[]> getNonStopWords(List<N[]> document)
 	{
-		List<N[]> nonstop = new ArrayList<>();
-		N node;
+		List<N[]> nonstop = new ArrayList<>(document.size());
+		int i, j, count;
 		
 		for (N[] nodes : document)
 		{
-			List<N> sen = new ArrayList<>();
+			for (i=1,count=0; i<nodes.length; i++)
+				if (!nodes[i].isStopWord()) count++;
 			
-			for (int i=1; i<nodes.length; i++)
+			if (count == nodes.length - 1)
+				nonstop.add(nodes);
+			else if (count > 0)
 			{
-				node = nodes[i];
-				if (!node.isStopWord()) sen.add(node);
-			}
-			
-			if (!sen.isEmpty())
-			{
-				N[] snodes = (N[])Array.newInstance(key_node.getClass(), sen.size()+1);
+				N[] snodes = (N[])Array.newInstance(nodes.getClass().getComponentType(), count+1);
 				snodes[0] = nodes[0];
 				
-				for (int i=1; i<snodes.length; i++)
-					snodes[i] = sen.get(i-1);
+				for (i=1,j=1; i<nodes.length; i++)
+					if (!nodes[i].isStopWord()) snodes[j++] = nodes[i];
 				
 				nonstop.add(snodes);
 			}
@@ -109,7 +109,9 @@ public class DOCState<N extends AbstractNLPNode<N>> extends NLPState<N>
 	
 	public List<N[]> getDocument(boolean excludeStopwords)
 	{
-		return excludeStopwords ? non_stopwords : getDocument();
+		if (!excludeStopwords) return getDocument();
+		if (non_stopwords == null) non_stopwords = getNonStopWords(getDocument());
+		return non_stopwords;
 	}
 	
 	public String getLabel()
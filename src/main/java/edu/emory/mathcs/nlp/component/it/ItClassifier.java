@@ -16,10 +16,13 @@
 package edu.emory.mathcs.nlp.component.it;
 
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
 
 import edu.emory.mathcs.nlp.component.template.OnlineComponent;
 import edu.emory.mathcs.nlp.component.template.eval.Eval;
+import edu.emory.mathcs.nlp.component.template.feature.FeatureItem;
+import edu.emory.mathcs.nlp.component.template.feature.Field;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 
 /**
@@ -48,6 +51,19 @@ public class ItClassifier<N extends AbstractNLPNode<N>> extends OnlineComponent<
 		feature_template = new ItFeatureTemplate<>(config.getFeatureTemplateElement(), getHyperParameter());
 	}
 
+	/** The features do not depend on any prediction unless they include the labels of the previous "it"s. */
+	@Override
+	public boolean isStaticInstances()
+	{
+		return feature_template.getFeatureList().stream().flatMap(Arrays::stream).noneMatch(this::isLabel) &&
+			   feature_template.getSetFeatureList().stream().noneMatch(this::isLabel);
+	}
+	
+	private boolean isLabel(FeatureItem item)
+	{
+		return item.field == Field.feats && ItState.FEAT_KEY.equals(item.attribute);
+	}
+	
 	@Override
 	public Eval createEvaluator()
 	{
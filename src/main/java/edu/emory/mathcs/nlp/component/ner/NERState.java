@@ -23,6 +23,7 @@ import edu.emory.mathcs.nlp.component.template.eval.F1Eval;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 import edu.emory.mathcs.nlp.component.template.state.L2RState;
 import edu.emory.mathcs.nlp.component.template.util.BILOU;
+import edu.emory.mathcs.nlp.learning.util.StringPool;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap.Entry;
 
@@ -48,7 +49,7 @@ public class NERState<N extends AbstractNLPNode<N>> extends L2RState<N>
 	protected String setLabel(N node, String label)
 	{
 		String s = node.getNamedEntityTag();	
-		node.setNamedEntityTag(label);
+		node.setNamedEntityTag(StringPool.LABELS.get(label));
 		return s;
 	}
 	
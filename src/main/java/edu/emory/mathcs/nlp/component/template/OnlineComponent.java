@@ -29,6 +29,7 @@ import edu.emory.mathcs.nlp.component.template.util.NLPFlag;
 import edu.emory.mathcs.nlp.learning.optimization.OnlineOptimizer;
 import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 import edu.emory.mathcs.nlp.learning.util.Instance;
+import edu.emory.mathcs.nlp.learning.util.InstanceCache;
 import edu.emory.mathcs.nlp.learning.util.MLUtils;
 
 /**
@@ -46,6 +47,13 @@ public abstract class OnlineComponent<N extends AbstractNLPNode<N>, S extends NL
 	protected transient NLPConfig<N>   config;
 	protected transient NLPFlag        flag;
 	protected transient Eval           eval;
+	
+	// if true, features are extracted from the columnar view of each sentence (see NLPState#initColumns)
+	protected transient boolean        columnar;
+	// if true, token-level features are shared with other components through the sentence (see NLPState#initFeatureCache)
+	protected transient boolean        share_features;
+	// if not null, training instances are recorded to this cache (see OnlineTrainer#setCacheInstances)
+	protected transient InstanceCache  instance_cache;
 
 //	============================== CONSTRUCTORS ==============================
 	
@@ -138,6 +146,46 @@ public abstract class OnlineComponent<N extends AbstractNLPNode<N>, S extends NL
 		return config;
 	}
 	
+	public boolean isColumnar()
+	{
+		return columnar;
+	}
+	
+	public void setColumnar(boolean columnar)
+	{
+		this.columnar = columnar;
+	}
+	
+	public boolean isShareFeatures()
+	{
+		return share_features;
+	}
+	
+	public void setShareFeatures(boolean share)
+	{
+		share_features = share;
+	}
+	
+	public InstanceCache getInstanceCache()
+	{
+		return instance_cache;
+	}
+	
+	/** @param cache if not null, the instances trained by {@link #train(Instance)} are recorded to the cache. */
+	public void setInstanceCache(InstanceCache cache)
+	{
+		instance_cache = cache;
+	}
+	
+	/**
+	 * @return {@code true} if the training instances do not depend on the predictions made so far (e.g., document classification),
+	 * so the same instances are extracted in every epoch; see {@link edu.emory.mathcs.nlp.component.template.train.OnlineTrainer#setCacheInstances(boolean)}.
+	 */
+	public boolean isStaticInstances()
+	{
+		return false;
+	}
+	
 	public boolean isDocumentBased()
 	{
 		return document_based;
@@ -184,11 +232,13 @@ public abstract class OnlineComponent<N extends AbstractNLPNode<N>, S extends NL
 	public S process(S state)
 	{
 		if (!isDecode() && !state.saveOracle()) return state;
+		if (columnar) state.initColumns();
+		if (share_features) state.initFeatureCache();
 		int[] top2 = {0,-1};
 		Instance instance;
 		FeatureVector x;
 		float[] scores;
-		String label;
+		int label;
 
 		while (!state.isTerminate())
 		{
@@ -196,16 +246,15 @@ public abstract class OnlineComponent<N extends AbstractNLPNode<N>, S extends NL
 			
 			if (isTrain())
 			{
-				label = state.getOracle();
+				label = state.getOracle(optimizer.getLabelMap());
 				instance = new Instance(label, x);
-				optimizer.train(instance);
+				train(instance);
 				scores = instance.getScores();
-				putLabel(instance.getStringLabel(), instance.getGoldLabel());
 				top2[0] = hyper_parameter.getLOLS().chooseGold() ? instance.getGoldLabel() : getPrediction(state, scores)[0];
 			}
 			else
 			{
-				scores = optimizer.scores(x);
+				scores = scores(state, x);
 				top2 = getPrediction(state, scores);
 			}
 			
@@ -217,12 +266,28 @@ public abstract class OnlineComponent<N extends AbstractNLPNode<N>, S extends NL
 			postProcess(state);
 			if (isEvaluate()) state.evaluate(eval);
 		}
+		else
+			state.resetOracle();	// the nodes may be processed again in the next epoch
 		
 		return state;
 	}
 	
+	/** Trains the optimizer with the instance, which is recorded beforehand if {@link #instance_cache} is set. */
+	public void train(Instance instance)
+	{
+		if (instance_cache != null) instance_cache.add(instance);
+		optimizer.train(instance);
+		putLabel(optimizer.getLabel(instance.getGoldLabel()), instance.getGoldLabel());
+	}
+	
 //	============================== HELPERS ==============================
 
+	/** @return the scores of the labels for decoding, where labels that {@link #getPrediction(NLPState, float[])} never chooses may be left unscored. */
+	protected float[] scores(S state, FeatureVector x)
+	{
+		return optimizer.scores(x);
+	}
+	
 	protected int[] getPrediction(S state, float[] scores)
 	{
 		return MLUtils.argmax2(scores);
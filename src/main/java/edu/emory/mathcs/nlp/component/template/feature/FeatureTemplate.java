@@ -17,11 +17,15 @@ package edu.emory.mathcs.nlp.component.template.feature;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.WeakHashMap;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -33,14 +37,18 @@ import edu.emory.mathcs.nlp.common.util.FastUtils;
 import edu.emory.mathcs.nlp.common.util.Joiner;
 import edu.emory.mathcs.nlp.common.util.Splitter;
 import edu.emory.mathcs.nlp.common.util.XMLUtils;
+import edu.emory.mathcs.nlp.component.template.lexicon.WordClusterLexicon;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 import edu.emory.mathcs.nlp.component.template.node.Orthographic;
+import edu.emory.mathcs.nlp.component.template.node.TokenFeatureCache;
 import edu.emory.mathcs.nlp.component.template.state.NLPState;
 import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.learning.optimization.OnlineOptimizer;
 import edu.emory.mathcs.nlp.learning.util.ColumnMajorVector;
 import edu.emory.mathcs.nlp.learning.util.FeatureMap;
 import edu.emory.mathcs.nlp.learning.util.FeatureVector;
 import edu.emory.mathcs.nlp.learning.util.MajorVector;
+import edu.emory.mathcs.nlp.learning.util.SparseItem;
 import edu.emory.mathcs.nlp.learning.util.SparseVector;
 import edu.emory.mathcs.nlp.learning.util.StringPrediction;
 import edu.emory.mathcs.nlp.learning.util.WeightVector;
@@ -64,6 +72,17 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 	protected FeatureMap            feature_map;
 	protected int                   cutoff;
 	
+	// feature indices of word cluster prefix ids: 0 if not looked up, -1 if not found
+	protected transient WordClusterLexicon cluster_lexicon;
+	protected transient int[][]            cluster_index;
+	
+	// feature indices of static feature types for each sentence kept during training (see setStaticCache)
+	protected transient Map<N[],StaticFeatureCache> static_cache;
+	protected transient boolean[]                   static_types;	// type -> true if static
+	
+	// occurrences of the features in the training vectors by their indices if counted (see setCountOccurrences)
+	protected transient int[] feature_occurrences;
+	
 	public FeatureTemplate(Element eFeatures, HyperParameter hp)
 	{
 		feature_list    = new ArrayList<>();
@@ -205,6 +224,12 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 		return feature_map.size();
 	}
 	
+	/** Freezes the feature map for decoding (see {@link FeatureMap#freeze()}). */
+	public void freezeFeatureMap()
+	{
+		feature_map.freeze();
+	}
+	
 	public int getTemplateSize()
 	{
 		return feature_list.size() + feature_set.size() + word_embeddings.size();
@@ -234,11 +259,14 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 	
 	public FeatureVector createFeatureVector(S state, boolean isTrain)
 	{
-		return new FeatureVector(createSparseVector(state, isTrain), createDenseVector(state));
+		SparseVector x = createSparseVector(state, isTrain);
+		if (isTrain && feature_occurrences != null) countOccurrences(x);
+		return new FeatureVector(x, createDenseVector(state));
 	}
 	
 	public SparseVector createSparseVector(S state, boolean isTrain)
 	{
+		StaticFeatureCache cache = getStaticFeatureCache(state, isTrain);
 		SparseVector x = new SparseVector();
 		Collection<String> t;
 		int i, type = 0;
@@ -246,12 +274,15 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 		
 		for (i=0; i<feature_set.size(); i++,type++)
 		{
+			if (cache != null && static_types[type] && addStaticSet(x, type, state, cache, feature_set.get(i))) continue;
+			if (feature_set.get(i).field == Field.word_clusters && addWordClusters(x, type, state, feature_set.get(i), isTrain)) continue;
 			t = getFeatures(state, feature_set.get(i));
 			if (t != null) for (String s : t) add(x, type, s, 1, isTrain);
 		}
 		
 		for (i=0; i<feature_list.size(); i++,type++)
 		{
+			if (cache != null && static_types[type] && addStatic(x, type, state, cache, feature_list.get(i))) continue;
 			f = getFeature(state, feature_list.get(i));
 			add(x, type, f, 1, isTrain);
 		}
@@ -261,19 +292,257 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 	
 	protected void add(SparseVector x, int type, String value, float weight, boolean isTrain)
 	{
-		if (value != null)
+		int index = getIndex(type, value, isTrain);
+		if (index > 0) x.add(index, weight);
+	}
+	
+	/** @return the index of the feature if exists; otherwise, -1. If {@code isTrain}, the feature is counted and added once it passes the cutoff. */
+	protected int getIndex(int type, String value, boolean isTrain)
+	{
+		if (value == null)
+			return -1;
+		else if (isTrain)
+			return FastUtils.increment(feature_count, type+value) > cutoff ? feature_map.add(type, value) : -1;
+		else
+			return feature_map.index(type, value);
+	}
+	
+	/** @return false if the node's word clusters are not from {@link WordClusterLexicon}. */
+	protected boolean addWordClusters(SparseVector x, int type, S state, FeatureItem item, boolean isTrain)
+	{
+		N node = state.getNode(item);
+		if (node == null) return true;
+		WordClusterLexicon lexicon = node.getWordClusterLexicon();
+		if (lexicon == null) return false;
+		
+		for (int id : node.getWordClusterIds())
+			add(x, type, lexicon, id, 1, isTrain);
+		
+		return true;
+	}
+	
+	/**
+	 * Adds the word cluster prefix whose feature index is cached by its id once it is found.
+	 * During training, the prefix is still counted for every occurrence as in {@link #getIndex(int, String, boolean)};
+	 * the cached index only skips the lookup in the feature map.
+	 */
+	protected void add(SparseVector x, int type, WordClusterLexicon lexicon, int prefixId, float weight, boolean isTrain)
+	{
+		int[] cache = getClusterIndex(lexicon, type);
+		int index = cache[prefixId];
+		
+		if (isTrain)
 		{
-			int index;
+			String value = lexicon.getPrefix(prefixId);
 			
-			if (isTrain)
-				index = FastUtils.increment(feature_count, type+value) > cutoff ? feature_map.add(type, value) : -1;
-			else
-				index = feature_map.index(type, value);
+			if (FastUtils.increment(feature_count, type+value) <= cutoff)
+				index = -1;
+			else if (index <= 0)
+				index = cache[prefixId] = feature_map.add(type, value);
+		}
+		else if (index == 0)
+			index = cache[prefixId] = feature_map.index(type, lexicon.getPrefix(prefixId));
+		
+		if (index > 0) x.add(index, weight);
+	}
+	
+	protected int[] getClusterIndex(WordClusterLexicon lexicon, int type)
+	{
+		int[][] index = cluster_index;
+		
+		if (index == null || cluster_lexicon != lexicon)
+		{
+			synchronized (this)
+			{
+				if (cluster_index == null || cluster_lexicon != lexicon)
+				{
+					cluster_index = new int[getTemplateSize()][];
+					cluster_lexicon = lexicon;
+				}
+				
+				index = cluster_index;
+			}
+		}
+		
+		int[] cache = index[type];
+		if (cache == null) index[type] = cache = new int[lexicon.getPrefixSize()];
+		return cache;
+	}
+	
+	/** Must be called whenever the indices in {@link #feature_map} are changed. */
+	public void clearClusterIndex()
+	{
+		cluster_index = null;
+	}
+	
+//	============================== STATIC FEATURES ==============================
+	
+	/**
+	 * If {@code true}, the indices of the {@link #isStatic(FeatureItem...) static} feature types are extracted once per sentence during training
+	 * and reused as long as the sentence is referenced (e.g., by the corpus cache of the trainer).
+	 * The indices are not cached if {@link #cutoff} is greater than 0 since the index of a feature depends on its count.
+	 * A static feature is counted in {@link #feature_count} only when its index is cached for a node (or nodes) of a sentence, not for every occurrence
+	 * (e.g., not at all in the epochs after the sentence is cached); this is harmless since the counts matter only with the cutoff,
+	 * and {@link #renumberFeatures(boolean)} uses the occurrences counted by {@link #setCountOccurrences(boolean)} instead.
+	 */
+	public void setStaticCache(boolean cache)
+	{
+		if (cache)
+		{
+			static_cache = new WeakHashMap<>();
+			static_types = new boolean[getTemplateSize()];
+			int type = 0;
+			
+			for (FeatureItem item : feature_set)
+				static_types[type++] = item.field != Field.word_clusters && isStatic(item);
 			
-			if (index > 0) x.add(index, weight);
+			for (FeatureItem[] items : feature_list)
+				static_types[type++] = isStatic(items);
+		}
+		else
+		{
+			static_cache = null;
+			static_types = null;
 		}
 	}
 	
+	public boolean isStaticCache()
+	{
+		return static_cache != null;
+	}
+	
+	/** Must be called whenever the indices in {@link #feature_map} are changed. */
+	public void clearStaticCache()
+	{
+		if (static_cache != null) static_cache.clear();
+	}
+	
+	/** @return {@code true} if the values of the items depend only on the tokens, not on the predictions made so far. */
+	public boolean isStatic(FeatureItem... items)
+	{
+		if (items.length > StaticFeatureCache.MAX_ITEMS) return false;
+		
+		for (FeatureItem item : items)
+		{
+			if (item.relation != null || !isStatic(item.field))
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/** @return {@code true} if the values of the field are not predicted by any component. */
+	protected boolean isStatic(Field field)
+	{
+		switch (field)
+		{
+		case word_form:
+		case word_form_lowercase:
+		case word_form_undigitalized:
+		case word_form_simplified:
+		case word_form_simplified_lowercase:
+		case word_shape:
+		case word_shape_lowercase:
+		case orthographic:
+		case orthographic_lowercase:
+		case prefix:
+		case suffix:
+		case lemma:
+		case ambiguity_classes:
+		case named_entity_gazetteers:
+		case positional: return true;
+		default: return false;
+		}
+	}
+	
+	/** @return the static feature cache of the sentence in the state if enabled; otherwise, {@code null}. */
+	protected StaticFeatureCache getStaticFeatureCache(S state, boolean isTrain)
+	{
+		N[] nodes = state.getNodes();
+		if (static_cache == null || !isTrain || cutoff > 0 || nodes == null) return null;
+		StaticFeatureCache cache = static_cache.get(nodes);
+		
+		if (cache == null)
+		{
+			cache = new StaticFeatureCache(nodes.length, getTemplateSize());
+			static_cache.put(nodes, cache);
+		}
+		
+		return cache;
+	}
+	
+	/** @return {@code false} if the feature cannot be cached; otherwise, {@code true} after adding the feature. */
+	protected boolean addStatic(SparseVector x, int type, S state, StaticFeatureCache cache, FeatureItem[] items)
+	{
+		if (items.length == 1) return addStatic(x, type, state, cache, items[0]);
+		if (!cache.isKeyable()) return false;
+		int[] ids = new int[items.length];
+		N node;
+		
+		for (int i=0; i<items.length; i++)
+		{
+			node = state.getNode(items[i]);
+			if (node == null) return true;
+			if (!isCacheable(state, node)) return false;
+			ids[i] = node.getID();
+		}
+		
+		long key = StaticFeatureCache.key(ids);
+		int index = cache.get(type, key);
+		
+		if (index == 0)
+		{
+			index = getIndex(type, getFeature(state, items), true);
+			cache.put(type, key, index);
+		}
+		
+		if (index > 0) x.add(index, 1);
+		return true;
+	}
+	
+	private boolean addStatic(SparseVector x, int type, S state, StaticFeatureCache cache, FeatureItem item)
+	{
+		N node = state.getNode(item);
+		if (node == null) return true;
+		if (!isCacheable(state, node)) return false;
+		int index = cache.get(type, node.getID());
+		
+		if (index == 0)
+		{
+			index = getIndex(type, getFeature(state, item, node), true);
+			cache.put(type, node.getID(), index);
+		}
+		
+		if (index > 0) x.add(index, 1);
+		return true;
+	}
+	
+	/** @return {@code false} if the features cannot be cached; otherwise, {@code true} after adding the features. */
+	protected boolean addStaticSet(SparseVector x, int type, S state, StaticFeatureCache cache, FeatureItem item)
+	{
+		N node = state.getNode(item);
+		if (node == null) return true;
+		if (!isCacheable(state, node)) return false;
+		int[] indices = cache.getSet(type, node.getID());
+		
+		if (indices == null)
+		{
+			Collection<String> t = getFeatures(state, item, node);
+			indices = (t == null) ? new int[0] : t.stream().mapToInt(s -> getIndex(type, s, true)).filter(i -> i > 0).toArray();
+			cache.putSet(type, node.getID(), indices);
+		}
+		
+		for (int index : indices) x.add(index, 1);
+		return true;
+	}
+	
+	private boolean isCacheable(S state, N node)
+	{
+		N[] nodes = state.getNodes();
+		int id = node.getID();
+		return 0 <= id && id < nodes.length && nodes[id] == node;
+	}
+	
 //	============================== SINGLE FEATURES ==============================
 	
 	/** Called by {@link #extractFeatures()}. */
@@ -306,7 +575,22 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 	
 	protected String getFeature(S state, FeatureItem item, N node)
 	{
-		String f = node.getValue(item.field);
+		TokenFeatureCache<N> cache = state.getFeatureCache();
+		if (cache == null || !TokenFeatureCache.isStatic(item.field)) return getFeatureAux(state, item, node);
+		Object f = cache.get(node, getClass(), item.field, item.attribute, false);
+		
+		if (f == TokenFeatureCache.MISSING)
+		{
+			f = getFeatureAux(state, item, node);
+			cache.put(node, getClass(), item.field, item.attribute, false, f);
+		}
+		
+		return (String)f;
+	}
+	
+	private String getFeatureAux(S state, FeatureItem item, N node)
+	{
+		String f = state.getValue(node, item.field);
 		if (f != null) return f;
 		
 		switch (item.field)
@@ -341,7 +625,24 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 		return (node == null) ? null : getFeatures(state, item, node);
 	}
 	
+	@SuppressWarnings("unchecked")
 	protected Collection<String> getFeatures(S state, FeatureItem item, N node)
+	{
+		TokenFeatureCache<N> cache = state.getFeatureCache();
+		if (cache == null || !TokenFeatureCache.isStatic(item.field)) return getFeaturesAux(state, item, node);
+		Object f = cache.get(node, getClass(), item.field, item.attribute, true);
+		
+		if (f == TokenFeatureCache.MISSING)
+		{
+			f = getFeaturesAux(state, item, node);
+			if (f != null) f = Collections.unmodifiableCollection((Collection<String>)f);
+			cache.put(node, getClass(), item.field, item.attribute, true, f);
+		}
+		
+		return (Collection<String>)f;
+	}
+	
+	private Collection<String> getFeaturesAux(S state, FeatureItem item, N node)
 	{
 		switch (item.field)
 		{
@@ -492,9 +793,9 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 	public float[] getEmbeddings(S state)
 	{
 		if (word_embeddings == null || word_embeddings.isEmpty()) return null;
-		float[] w, v = null;
+		float[] v = null;
+		int i = -1, d;
 		N node;
-		int i = -1;
 		
 		for (FeatureItem item : word_embeddings)
 		{
@@ -503,9 +804,9 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 			
 			if (node != null && node.hasWordEmbedding())
 			{
-				w = node.getWordEmbedding();
-				if (v == null) v = new float[w.length * word_embeddings.size()];
-				System.arraycopy(w, 0, v, w.length*i, w.length);
+				d = node.getWordEmbeddingSize();
+				if (v == null) v = new float[d * word_embeddings.size()];
+				node.copyWordEmbedding(v, d*i);
 			}
 		}
 		
@@ -593,6 +894,86 @@ public class FeatureTemplate<N extends AbstractNLPNode<N>, S extends NLPState<N>
 		
 		weights.setSparseWeightVector(newSparse);
 		feature_map.setSize(count);
+		clearClusterIndex();
+		clearStaticCache();
 		return count;
 	}
+	
+	/**
+	 * If {@code true}, the occurrences of the features in the vectors created by {@link #createFeatureVector(NLPState, boolean)} during training
+	 * are counted by their indices for {@link #renumberFeatures(boolean)}.
+	 * Unlike {@link #feature_count}, the occurrences include the features whose indices are taken from the caches (e.g., {@link #setStaticCache(boolean)}).
+	 */
+	public void setCountOccurrences(boolean count)
+	{
+		feature_occurrences = count ? new int[Math.max(feature_map.size(), 16)] : null;
+	}
+	
+	public boolean isCountOccurrences()
+	{
+		return feature_occurrences != null;
+	}
+	
+	/** @return the number of occurrences of the feature counted since {@link #setCountOccurrences(boolean)}. */
+	public int getOccurrences(int index)
+	{
+		return (feature_occurrences != null && index < feature_occurrences.length) ? feature_occurrences[index] : 0;
+	}
+	
+	protected void countOccurrences(SparseVector x)
+	{
+		int[] occurrences = feature_occurrences;
+		int index;
+		
+		for (SparseItem item : x)
+		{
+			index = item.getIndex();
+			if (index >= occurrences.length) feature_occurrences = occurrences = Arrays.copyOf(occurrences, Math.max(index+1, occurrences.length * 2));
+			occurrences[index]++;
+		}
+	}
+	
+	/**
+	 * Renumbers the features in descending order of their occurrences counted since {@link #setCountOccurrences(boolean)} (e.g., in the first epoch),
+	 * so the weights of the most frequent features are stored together at the lowest indices.
+	 * The occurrences must be counted beforehand; they are discarded once the features are renumbered.
+	 * @param byType if {@code true}, the features of the same type are numbered together in the order of the types.
+	 * @return the map from the old indices to the new indices, which must be applied to the weights (see {@link OnlineOptimizer#renumberSparseFeatures(int[])}).
+	 */
+	public int[] renumberFeatures(boolean byType)
+	{
+		if (feature_occurrences == null) throw new IllegalStateException("The occurrences of the features are not counted.");
+		List<Object2IntMap<String>> maps = feature_map.getIndexMaps();
+		int[] indexMap = new int[feature_map.size()];
+		long[] keys = new long[indexMap.length];
+		int type, i, begin, count = 1;	// bias
+		
+		for (type=0; type<maps.size(); type++)
+		{
+			begin = count;
+			
+			for (Entry<String> e : maps.get(type).object2IntEntrySet())
+				keys[count++] = ((long)(Integer.MAX_VALUE - getOccurrences(e.getIntValue())) << 32) | e.getIntValue();
+			
+			if (byType) Arrays.sort(keys, begin, count);
+		}
+		
+		if (!byType) Arrays.sort(keys, 1, count);
+		
+		for (i=1; i<count; i++)
+			indexMap[(int)keys[i]] = i;
+		
+		// indices not in the map (e.g., removed by the reduction) are placed after the features
+		for (i=1; i<indexMap.length; i++)
+			if (indexMap[i] == 0) indexMap[i] = count++;
+		
+		for (Object2IntMap<String> map : maps)
+			for (Entry<String> e : map.object2IntEntrySet())
+				e.setValue(indexMap[e.getIntValue()]);
+		
+		feature_occurrences = null;
+		clearClusterIndex();
+		clearStaticCache();
+		return indexMap;
+	}
 }
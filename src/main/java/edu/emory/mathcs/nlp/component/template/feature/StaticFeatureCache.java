@@ -0,0 +1,106 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.feature;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+/**
+ * Feature indices of a sentence for the feature types whose values depend only on the tokens ({@link FeatureTemplate#isStatic(FeatureItem...)}).
+ * A type consisting of one item is keyed by the node ID; a type consisting of multiple items is keyed by {@link #key(int[])}.
+ * An index of 0 means not cached, and -1 means no feature.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class StaticFeatureCache
+{
+	/** The maximum number of items in a type whose node IDs can be packed into a key. */
+	static public final int MAX_ITEMS = 3;
+	static private final int ID_BITS = 21;
+	
+	private int      node_size;
+	private Object[] types;	// type -> int[] (single), int[][] (set), or Long2IntMap (joint)
+	
+	public StaticFeatureCache(int nodeSize, int typeSize)
+	{
+		node_size = nodeSize;
+		types = new Object[typeSize];
+	}
+	
+	/** @return {@code true} if node IDs of the sentence can be packed into a key. */
+	public boolean isKeyable()
+	{
+		return node_size < (1 << ID_BITS);
+	}
+	
+	/** @return the node IDs packed into a key; the number of IDs must not exceed {@link #MAX_ITEMS}. */
+	static public long key(int[] ids)
+	{
+		long key = 0;
+		
+		for (int i=0; i<ids.length; i++)
+			key |= (long)ids[i] << (ID_BITS * i);
+		
+		return key;
+	}
+
+//	============================== SINGLE ==============================
+	
+	/** @return the feature index of the node for the type if cached; otherwise, 0. */
+	public int get(int type, int id)
+	{
+		int[] indices = (int[])types[type];
+		return (indices != null) ? indices[id] : 0;
+	}
+	
+	public void put(int type, int id, int index)
+	{
+		int[] indices = (int[])types[type];
+		if (indices == null) types[type] = indices = new int[node_size];
+		indices[id] = index;
+	}
+
+//	============================== JOINT ==============================
+	
+	/** @return the feature index of the packed node IDs for the type if cached; otherwise, 0. */
+	public int get(int type, long key)
+	{
+		Long2IntMap indices = (Long2IntMap)types[type];
+		return (indices != null) ? indices.get(key) : 0;
+	}
+	
+	public void put(int type, long key, int index)
+	{
+		Long2IntMap indices = (Long2IntMap)types[type];
+		if (indices == null) types[type] = indices = new Long2IntOpenHashMap();
+		indices.put(key, index);
+	}
+
+//	============================== SET ==============================
+	
+	/** @return the feature indices of the node for the set type if cached; otherwise, {@code null}. */
+	public int[] getSet(int type, int id)
+	{
+		int[][] indices = (int[][])types[type];
+		return (indices != null) ? indices[id] : null;
+	}
+	
+	public void putSet(int type, int id, int[] index)
+	{
+		int[][] indices = (int[][])types[type];
+		if (indices == null) types[type] = indices = new int[node_size][];
+		indices[id] = index;
+	}
+}
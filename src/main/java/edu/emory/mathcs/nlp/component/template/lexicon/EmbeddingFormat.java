@@ -0,0 +1,37 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+/**
+ * Storage formats of {@link WordEmbeddingTable}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public enum EmbeddingFormat
+{
+	float32,	// 4 bytes per value
+	float16,	// 2 bytes per value (IEEE 754 half precision)
+	int8;		// 1 byte per value + 4 bytes for the scale of each row
+	
+	public int getRowBytes(int dimension)
+	{
+		switch (this)
+		{
+		case float16: return dimension * 2;
+		case int8   : return dimension + 4;
+		default     : return dimension * 4;
+		}
+	}
+}
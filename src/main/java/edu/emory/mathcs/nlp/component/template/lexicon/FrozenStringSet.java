@@ -0,0 +1,119 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.emory.mathcs.nlp.learning.util.MinimalPerfectHash;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Immutable set of strings backed by {@link MinimalPerfectHash} over {@link String#hashCode()}, which is cached by strings.
+ * Each lookup compares against at most one stored string; the rare strings sharing hash codes with others are kept in a separate map.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class FrozenStringSet extends AbstractSet<String> implements Serializable
+{
+	private static final long serialVersionUID = -5407934436624829108L;
+	private MinimalPerfectHash    hash;
+	private String[]              keys;	// index -> key
+	private BitSet                shared;	// indices whose hash codes are shared by other keys
+	private Object2IntMap<String> collisions;
+	
+	public FrozenStringSet(Collection<String> strings)
+	{
+		Set<String> set = new LinkedHashSet<>(strings);
+		IntSet hashCodes = new IntOpenHashSet();
+		List<String> primary = new ArrayList<>(set.size());
+		List<String> secondary = new ArrayList<>();
+		
+		for (String key : set)
+		{
+			if (hashCodes.add(key.hashCode()))
+				primary.add(key);
+			else
+				secondary.add(key);
+		}
+		
+		hash = new MinimalPerfectHash(primary.stream().mapToInt(String::hashCode).toArray());
+		keys = new String[set.size()];
+		for (String key : primary) keys[hash.index(key.hashCode())] = key;
+		if (secondary.isEmpty()) return;
+		
+		shared = new BitSet(primary.size());
+		collisions = new Object2IntOpenHashMap<>();
+		collisions.defaultReturnValue(-1);
+		
+		for (int i=0; i<secondary.size(); i++)
+		{
+			String key = secondary.get(i);
+			keys[primary.size()+i] = key;
+			collisions.put(key, primary.size()+i);
+			shared.set(hash.index(key.hashCode()));
+		}
+	}
+	
+	/** @return the index of the key in {@code [0, size())} if exists; otherwise, -1. */
+	public int indexOf(CharSequence key)
+	{
+		if (key == null || keys.length == 0) return -1;
+		int h = hashCode(key), index = hash.index(h);
+		if (keys[index].hashCode() == h && keys[index].contentEquals(key)) return index;
+		return (shared != null && shared.get(index)) ? collisions.getInt(key.toString()) : -1;
+	}
+	
+	/** @return the same value as {@link String#hashCode()}. */
+	static public int hashCode(CharSequence key)
+	{
+		if (key instanceof String) return key.hashCode();
+		int h = 0;
+		
+		for (int i=0; i<key.length(); i++)
+			h = 31 * h + key.charAt(i);
+		
+		return h;
+	}
+	
+	@Override
+	public boolean contains(Object o)
+	{
+		return (o instanceof CharSequence) && indexOf((CharSequence)o) >= 0;
+	}
+	
+	@Override
+	public Iterator<String> iterator()
+	{
+		return Arrays.asList(keys).iterator();
+	}
+	
+	@Override
+	public int size()
+	{
+		return keys.length;
+	}
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
+import edu.emory.mathcs.nlp.component.template.util.BILOU;
+import edu.emory.mathcs.nlp.learning.util.StringPool;
+
+/**
+ * Aho-Corasick automaton over token IDs that finds the gazetteer entries in a sentence in linear time.
+ * Transitions of each state are kept as a sorted slice of flat arrays; built by {@link GazetteerMatcherBuilder}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class GazetteerMatcher implements Serializable
+{
+	private static final long serialVersionUID = -2372460385427946082L;
+	private WordIndex tokens;
+	private String[]  types;
+	
+	// states
+	private int[] edge_begin;	// state -> begin index of its transitions
+	private int[] edge_tokens;	// sorted by token IDs within each state
+	private int[] edge_states;
+	private int[] failures;
+	private int[] output_links;	// state -> the nearest state with outputs on its failure path; 0 if none
+	private int[] output_begin;	// state -> begin index of its types
+	private int[] output_types;
+	private int[] depths;
+	
+	private transient String[][] bilou_tags;	// type -> BILOU -> pooled tag
+	
+	GazetteerMatcher(WordIndex tokens, String[] types, int[] edgeBegin, int[] edgeTokens, int[] edgeStates, int[] failures, int[] outputLinks, int[] outputBegin, int[] outputTypes, int[] depths)
+	{
+		this.tokens       = tokens;
+		this.types        = types;
+		this.edge_begin   = edgeBegin;
+		this.edge_tokens  = edgeTokens;
+		this.edge_states  = edgeStates;
+		this.failures     = failures;
+		this.output_links = outputLinks;
+		this.output_begin = outputBegin;
+		this.output_types = outputTypes;
+		this.depths       = depths;
+	}
+	
+//	=================================== GETTERS ===================================
+	
+	public String[] getTypes()
+	{
+		return types;
+	}
+	
+	public int getStateSize()
+	{
+		return depths.length;
+	}
+	
+	/** @return the BILOU tag of the gazetteer type pooled in {@link StringPool#LABELS}. */
+	public String getBILOUTag(BILOU bilou, int type)
+	{
+		if (bilou_tags == null) bilou_tags = createBILOUTags();
+		return bilou_tags[type][bilou.ordinal()];
+	}
+	
+	private String[][] createBILOUTags()
+	{
+		String[][] tags = new String[types.length][BILOU.values().length];
+		
+		for (int type=0; type<types.length; type++)
+			for (BILOU bilou : BILOU.values())
+				tags[type][bilou.ordinal()] = StringPool.LABELS.get(BILOU.toBILOUTag(bilou, types[type]));
+		
+		return tags;
+	}
+	
+//	=================================== MATCH ===================================
+	
+	/**
+	 * Adds the BILOU tags of the longest gazetteer entry beginning at each token in {@code nodes[1:]} to the corresponding nodes,
+	 * as {@code PrefixTree#getAll(nodes, 1, getKey, false, false)} does.
+	 */
+	public <N extends AbstractNLPNode<N>>void addNamedEntityGazetteers(N[] nodes, Function<N,String> getKey)
+	{
+		int[] longest = new int[nodes.length];	// begin -> the state of the longest entry beginning at the token; 0 if none
+		int[] ends = new int[nodes.length];
+		int state = 0, next, token, s, begin;
+		String key;
+		
+		for (int i=1; i<nodes.length; i++)
+		{
+			key = getKey.apply(nodes[i]);
+			token = (key != null) ? tokens.get(key) : -1;
+			
+			if (token < 0)
+			{
+				state = 0;
+				continue;
+			}
+			
+			while ((next = getNextState(state, token)) < 0 && state > 0)
+				state = failures[state];
+			
+			state = Math.max(next, 0);
+			
+			// entries ending later are longer, so they override the earlier ones beginning at the same token
+			for (s=hasOutputs(state) ? state : output_links[state]; s > 0; s=output_links[s])
+			{
+				begin = i - depths[s] + 1;
+				longest[begin] = s;
+				ends[begin] = i;
+			}
+		}
+		
+		for (begin=1; begin<nodes.length; begin++)
+		{
+			if ((s = longest[begin]) == 0) continue;
+			
+			for (int j=output_begin[s]; j<output_begin[s+1]; j++)
+				tag(nodes, begin, ends[begin], output_types[j]);
+		}
+	}
+	
+	private <N extends AbstractNLPNode<N>>void tag(N[] nodes, int begin, int end, int type)
+	{
+		if (begin == end)
+			nodes[begin].addNamedEntityGazetteer(getBILOUTag(BILOU.U, type));
+		else
+		{
+			nodes[begin].addNamedEntityGazetteer(getBILOUTag(BILOU.B, type));
+			nodes[end].addNamedEntityGazetteer(getBILOUTag(BILOU.L, type));
+			
+			for (int k=begin+1; k<end; k++)
+				nodes[k].addNamedEntityGazetteer(getBILOUTag(BILOU.I, type));
+		}
+	}
+	
+	/** @return the state transitioned from the state by the token if exists; otherwise, -1. */
+	private int getNextState(int state, int token)
+	{
+		int index = Arrays.binarySearch(edge_tokens, edge_begin[state], edge_begin[state+1], token);
+		return (index < 0) ? -1 : edge_states[index];
+	}
+	
+	private boolean hasOutputs(int state)
+	{
+		return output_begin[state] < output_begin[state+1];
+	}
+}
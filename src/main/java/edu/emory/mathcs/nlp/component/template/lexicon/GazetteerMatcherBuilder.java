@@ -0,0 +1,224 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import edu.emory.mathcs.nlp.common.collection.tree.PrefixNode;
+import edu.emory.mathcs.nlp.common.collection.tree.PrefixTree;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntAVLTreeSet;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Collects gazetteer entries into a token trie and compiles it into {@link GazetteerMatcher}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class GazetteerMatcherBuilder
+{
+	private WordIndex             tokens;
+	private List<Int2IntMap>      children;	// state -> token -> state
+	private List<IntSortedSet>    outputs;	// state -> types
+	private Object2IntMap<String> type_map;
+	private List<String>          types;
+	
+	public GazetteerMatcherBuilder()
+	{
+		tokens   = new WordIndex();
+		children = new ArrayList<>();
+		outputs  = new ArrayList<>();
+		type_map = new Object2IntOpenHashMap<>();
+		types    = new ArrayList<>();
+		type_map.defaultReturnValue(-1);
+		addState();
+	}
+	
+	/** Adds {@code keys[beginIndex:endIndex]} as an entry of the gazetteer type. */
+	public void add(String[] keys, int beginIndex, int endIndex, String type)
+	{
+		int state = 0;
+		
+		for (int i=beginIndex; i<endIndex; i++)
+			state = getChild(state, tokens.add(keys[i]));
+		
+		outputs.get(state).add(getTypeID(type));
+	}
+	
+	/** Adds all entries in the prefix tree (e.g., previously serialized by NERPrefixTreeExtract). */
+	public void add(PrefixTree<String,Set<String>> tree)
+	{
+		Deque<PrefixNode<String,Set<String>>> nodes = new ArrayDeque<>();
+		IntArrayList states = new IntArrayList();
+		PrefixNode<String,Set<String>> node;
+		int state;
+		
+		nodes.push(tree.getRoot());
+		states.push(0);
+		
+		while (!nodes.isEmpty())
+		{
+			node  = nodes.pop();
+			state = states.popInt();
+			
+			if (node.hasValue())
+			{
+				for (String type : node.getValue())
+					outputs.get(state).add(getTypeID(type));
+			}
+			
+			for (Entry<String,PrefixNode<String,Set<String>>> e : node.entrySet())
+			{
+				nodes.push(e.getValue());
+				states.push(getChild(state, tokens.add(e.getKey())));
+			}
+		}
+	}
+	
+	private int getChild(int state, int token)
+	{
+		Int2IntMap map = children.get(state);
+		int child = map.get(token);
+		
+		if (child < 0)
+		{
+			child = addState();
+			map.put(token, child);
+		}
+		
+		return child;
+	}
+	
+	private int addState()
+	{
+		Int2IntMap map = new Int2IntOpenHashMap(2);
+		map.defaultReturnValue(-1);
+		children.add(map);
+		outputs.add(new IntAVLTreeSet());
+		return children.size() - 1;
+	}
+	
+	private int getTypeID(String type)
+	{
+		int id = type_map.getInt(type);
+		
+		if (id < 0)
+		{
+			id = types.size();
+			type_map.put(type, id);
+			types.add(type);
+		}
+		
+		return id;
+	}
+	
+//	=================================== BUILD ===================================
+	
+	/** Renumbers the states in breadth-first order and computes the failure links. */
+	public GazetteerMatcher build()
+	{
+		final int size = children.size();
+		int[] order  = new int[size];	// new state -> old state
+		int[] rename = new int[size];	// old state -> new state
+		int[] depths = new int[size];
+		int[] edgeBegin = new int[size+1];
+		int[] edgeTokens = new int[size-1];
+		int[] edgeStates = new int[size-1];
+		int[] keys;
+		int head = 0, tail = 1, e = 0, state, child;
+		
+		while (head < tail)
+		{
+			state = order[head];
+			edgeBegin[head] = e;
+			keys = children.get(state).keySet().toIntArray();
+			Arrays.sort(keys);
+			
+			for (int token : keys)
+			{
+				child = children.get(state).get(token);
+				rename[child] = tail;
+				depths[tail] = depths[head] + 1;
+				order[tail++] = child;
+				edgeTokens[e] = token;
+				edgeStates[e++] = rename[child];
+			}
+			
+			head++;
+		}
+		
+		edgeBegin[size] = e;
+		int[] failures    = new int[size];
+		int[] outputLinks = new int[size];
+		int[] outputBegin = new int[size+1];
+		IntArrayList outputTypes = new IntArrayList();
+		int f, next;
+		
+		for (state=0; state<size; state++)
+		{
+			outputBegin[state] = outputTypes.size();
+			outputTypes.addAll(outputs.get(order[state]));
+			
+			for (int i=edgeBegin[state]; i<edgeBegin[state+1]; i++)
+			{
+				child = edgeStates[i];
+				next  = -1;
+				
+				for (f=failures[state]; state > 0; f=failures[f])
+				{
+					if ((next = getNextState(edgeBegin, edgeTokens, edgeStates, f, edgeTokens[i])) >= 0 || f == 0)
+						break;
+				}
+				
+				failures[child] = Math.max(next, 0);
+			}
+		}
+		
+		outputBegin[size] = outputTypes.size();
+		
+		for (state=1; state<size; state++)	// parents precede children in breadth-first order
+		{
+			f = failures[state];
+			outputLinks[state] = (outputBegin[f] < outputBegin[f+1]) ? f : outputLinks[f];
+		}
+		
+		tokens.trim();
+		return new GazetteerMatcher(tokens, types.toArray(new String[types.size()]), edgeBegin, edgeTokens, edgeStates, failures, outputLinks, outputBegin, outputTypes.toIntArray(), depths);
+	}
+	
+	private int getNextState(int[] edgeBegin, int[] edgeTokens, int[] edgeStates, int state, int token)
+	{
+		int index = Arrays.binarySearch(edgeTokens, edgeBegin[state], edgeBegin[state+1], token);
+		return (index < 0) ? -1 : edgeStates[index];
+	}
+	
+	/** @return the matcher compiled from the prefix tree. */
+	static public GazetteerMatcher build(PrefixTree<String,Set<String>> tree)
+	{
+		GazetteerMatcherBuilder builder = new GazetteerMatcherBuilder();
+		builder.add(tree);
+		return builder.build();
+	}
+}
@@ -15,23 +15,36 @@
  */
 package edu.emory.mathcs.nlp.component.template.lexicon;
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.w3c.dom.Element;
 
 import edu.emory.mathcs.nlp.common.collection.tree.PrefixTree;
-import edu.emory.mathcs.nlp.common.collection.tuple.ObjectIntIntTriple;
 import edu.emory.mathcs.nlp.common.util.BinUtils;
 import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.common.util.Splitter;
 import edu.emory.mathcs.nlp.common.util.XMLUtils;
 import edu.emory.mathcs.nlp.component.template.NLPComponent;
 import edu.emory.mathcs.nlp.component.template.feature.Field;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
-import edu.emory.mathcs.nlp.component.template.util.BILOU;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
 
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
@@ -41,6 +54,13 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 	static final public String LEXICA = "lexica";
 	static final public String FIELD  = "field";
 	static final public String NAME   = "name";
+	static final public String FORMAT = "format";
+	static final public String FORMAT_TABLE   = "table";
+	static final public String FORMAT_INDEXED = "indexed";
+	static final public String VOCABULARY = "vocabulary";
+	static final public String CACHE_SIZE = "cache_size";
+	static final public String LAZY       = "lazy";
+	static final public int    DEFAULT_CACHE_SIZE = 100000;
 	
 //	protected Pair<Map<String,List<String>>,Field>       ambiguity_classes;
 //	protected Pair<Map<String,Set<String>>,Field>        word_clusters;	
@@ -49,11 +69,18 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 //	protected Pair<Set<String>,Field>                    stop_words;
 	
 	protected GlobalLexicon<Map<String,List<String>>>       ambiguity_classes;
-	protected GlobalLexicon<Map<String,Set<String>>>        word_clusters;	
-	protected GlobalLexicon<Map<String,float[]>>            word_embeddings;
-	protected GlobalLexicon<PrefixTree<String,Set<String>>> named_entity_gazetteers;
+	protected GlobalLexicon<WordClusterLexicon>             word_clusters;	
+	protected GlobalLexicon<Map<String,Set<String>>>        indexed_word_clusters;
+	protected GlobalLexicon<WordEmbeddingTable>             word_embeddings;
+	protected GlobalLexicon<GazetteerMatcher>               named_entity_gazetteers;
 	protected GlobalLexicon<Set<String>>                    stop_words;
 	
+	// loading options
+	protected Set<String>            vocabulary;
+	protected Map<Field,Set<String>> vocabulary_keys;
+	protected int                    cache_size;
+	protected volatile Runnable      lazy_loader;
+	
 //	=================================== CONSTRUCTOR ===================================
 	
 	/** @param in configuration xml. */
@@ -66,45 +93,238 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 	{
 		Element eLexica = XMLUtils.getFirstElementByTagName(doc, LEXICA);
 		if (eLexica == null) return;
+		initLoadingOptions(eLexica);
+		boolean indexed = isFormat(eLexica, "word_clusters", FORMAT_INDEXED);
+		
+		// the configuration is read here since DOM elements are not thread-safe
+		Callable<GlobalLexicon<Map<String,List<String>>>>       ambiguityClasses = getLoader(eLexica, "ambiguity_classes");
+		Callable<GlobalLexicon<WordClusterLexicon>>             wordClusters     = indexed ? () -> null : getLoader(eLexica, "word_clusters", GlobalLexica::toWordClusterLexicon);
+		Callable<GlobalLexicon<Map<String,Set<String>>>>        indexedClusters  = indexed ? getLoader(eLexica, "word_clusters") : () -> null;
+		Callable<GlobalLexicon<WordEmbeddingTable>>             wordEmbeddings   = getWordEmbeddingLoader(eLexica, "word_embeddings");
+		Callable<GlobalLexicon<GazetteerMatcher>>               gazetteers       = getLoader(eLexica, "named_entity_gazetteers", GlobalLexica::toGazetteerMatcher);
+		Callable<GlobalLexicon<Set<String>>>                    stopWords        = getLoader(eLexica, "stop_words", GlobalLexica::toFrozenStringSet);
+		
+		lazy_loader = () -> load(ambiguityClasses, wordClusters, indexedClusters, wordEmbeddings, gazetteers, stopWords);
+		if (!XMLUtils.getBooleanAttribute(eLexica, LAZY)) initLexica();
+	}
+	
+	/** Loads all lexica concurrently. */
+	protected void load(Callable<GlobalLexicon<Map<String,List<String>>>> ambiguityClasses, Callable<GlobalLexicon<WordClusterLexicon>> wordClusters, Callable<GlobalLexicon<Map<String,Set<String>>>> indexedClusters, Callable<GlobalLexicon<WordEmbeddingTable>> wordEmbeddings, Callable<GlobalLexicon<GazetteerMatcher>> gazetteers, Callable<GlobalLexicon<Set<String>>> stopWords)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(6);
+		long st = System.currentTimeMillis();
+		
+		Future<GlobalLexicon<Map<String,List<String>>>>       fAmbiguityClasses = executor.submit(ambiguityClasses);
+		Future<GlobalLexicon<WordClusterLexicon>>             fWordClusters     = executor.submit(wordClusters);
+		Future<GlobalLexicon<Map<String,Set<String>>>>        fIndexedClusters  = executor.submit(indexedClusters);
+		Future<GlobalLexicon<WordEmbeddingTable>>             fWordEmbeddings   = executor.submit(wordEmbeddings);
+		Future<GlobalLexicon<GazetteerMatcher>>               fGazetteers       = executor.submit(gazetteers);
+		Future<GlobalLexicon<Set<String>>>                    fStopWords        = executor.submit(stopWords);
+		executor.shutdown();
+		
+		try
+		{
+			setAmbiguityClasses     (fAmbiguityClasses.get());
+			setWordClusters         (fWordClusters.get());
+			setIndexedWordClusters  (fIndexedClusters.get());
+			setWordEmbeddings       (fWordEmbeddings.get());
+			setNamedEntityGazetteers(fGazetteers.get());
+			setStopWords            (fStopWords.get());
+		}
+		catch (Exception e) {e.printStackTrace();}
+		
+		BinUtils.LOG.info(String.format("Loading lexica: %d ms\n", System.currentTimeMillis() - st));
+	}
+	
+	/** Loads the lexica if they have not been loaded yet (e.g., in the lazy mode). */
+	protected void initLexica()
+	{
+		if (lazy_loader == null) return;
 		
-		setAmbiguityClasses     (getGlobalLexicon(eLexica, "ambiguity_classes"      , "Loading ambiguity classes"));
-		setWordClusters         (getGlobalLexicon(eLexica, "word_clusters"          , "Loading word clusters"));
-		setWordEmbeddings       (getGlobalLexicon(eLexica, "word_embeddings"        , "Loading word embeddings"));
-		setNamedEntityGazetteers(getGlobalLexicon(eLexica, "named_entity_gazetteers", "Loading named entity gazetteers"));
-		setStopWords            (getGlobalLexicon(eLexica, "stop_words"             , "Loading stop words"));
+		synchronized (this)
+		{
+			if (lazy_loader != null)
+			{
+				lazy_loader.run();
+				lazy_loader = null;
+			}
+		}
+	}
+	
+	/**
+	 * The vocabulary is either a word list or a corpus; lexica are restricted to the entries of its whitespace-separated tokens.
+	 * Lexica in the indexed format keep at most {@link #CACHE_SIZE} decoded entries in memory.
+	 */
+	protected void initLoadingOptions(Element eLexica)
+	{
+		String path = XMLUtils.getTrimmedAttribute(eLexica, VOCABULARY);
+		String size = XMLUtils.getTrimmedAttribute(eLexica, CACHE_SIZE);
+		cache_size = size.isEmpty() ? DEFAULT_CACHE_SIZE : Integer.parseInt(size);
+		if (path.isEmpty()) return;
+		
+		BinUtils.LOG.info("Loading vocabulary\n");
+		BufferedReader reader = IOUtils.createBufferedReader(IOUtils.getInputStream(path));
+		vocabulary = new HashSet<>();
+		vocabulary_keys = new EnumMap<>(Field.class);
+		String line;
+		
+		try
+		{
+			while ((line = reader.readLine()) != null)
+				vocabulary.addAll(Arrays.asList(Splitter.splitSpace(line.trim())));
+			
+			reader.close();
+		}
+		catch (Exception e) {e.printStackTrace();}
 	}
 	
-	protected <T>GlobalLexicon<T> getGlobalLexicon(Element eLexica, String tag, String message)
+	/** @return true if the lexicon is configured in the format. */
+	protected boolean isFormat(Element eLexica, String tag, String format)
 	{
-		return getGlobalLexicon(XMLUtils.getFirstElementByTagName(eLexica, tag), message);
+		Element element = XMLUtils.getFirstElementByTagName(eLexica, tag);
+		return element != null && format.equals(XMLUtils.getTrimmedAttribute(element, FORMAT));
+	}
+	
+	/** @return the keys of the vocabulary with respect to the field. */
+	protected Set<String> getVocabularyKeys(Field field)
+	{
+		synchronized (vocabulary_keys)
+		{
+			return vocabulary_keys.computeIfAbsent(field, f -> vocabulary.stream().map(w -> new NLPNode(0, w).getValue(f)).filter(k -> k != null).collect(Collectors.toSet()));
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected <T>T filter(T lexicon, Field field)
+	{
+		if (vocabulary == null) return lexicon;
+		
+		if (lexicon instanceof WordClusterLexicon)
+			return (T)((WordClusterLexicon)lexicon).filter(getVocabularyKeys(field));
+		
+		if (!(lexicon instanceof Map)) return lexicon;
+		Set<String> keys = getVocabularyKeys(field);
+		
+		if (lexicon instanceof IndexedLexicon)
+			return (T)((IndexedLexicon<?>)lexicon).filter(keys);
+		
+		Map<String,Object> map = new HashMap<>();
+		
+		for (Entry<String,?> e : ((Map<String,?>)lexicon).entrySet())
+		{
+			if (keys.contains(e.getKey()))
+				map.put(e.getKey(), e.getValue());
+		}
+		
+		return (T)map;
 	}
 	
 	@SuppressWarnings("unchecked")
-	protected <T>GlobalLexicon<T> getGlobalLexicon(Element element, String message)
+	protected <T>Callable<GlobalLexicon<T>> getLoader(Element eLexica, String tag)
+	{
+		return getLoader(eLexica, tag, lexicon -> (T)lexicon);
+	}
+	
+	/** @param converter converts the lexicon read from the file (e.g., from a legacy format). */
+	protected <T>Callable<GlobalLexicon<T>> getLoader(Element eLexica, String tag, Function<Object,T> converter)
+	{
+		Element element = XMLUtils.getFirstElementByTagName(eLexica, tag);
+		if (element == null) return () -> null;
+		
+		String path   = XMLUtils.getTrimmedTextContent(element);
+		String format = XMLUtils.getTrimmedAttribute(element, FORMAT);
+		String name   = XMLUtils.getTrimmedAttribute(element, NAME);
+		Field  field  = Field.valueOf(XMLUtils.getTrimmedAttribute(element, FIELD));
+		
+		return () ->
+		{
+			long st = System.currentTimeMillis();
+			T lexicon = converter.apply(filter(readLexicon(path, format), field));
+			BinUtils.LOG.info(String.format("Loading %s: %d ms\n", tag, System.currentTimeMillis() - st));
+			return new GlobalLexicon<>(lexicon, field, name);
+		};
+	}
+	
+	/** Word embeddings in the table format are memory-mapped; serialized maps are copied into a table. */
+	protected Callable<GlobalLexicon<WordEmbeddingTable>> getWordEmbeddingLoader(Element eLexica, String tag)
 	{
-		if (element == null) return null;
-		BinUtils.LOG.info(message+"\n");
+		Element element = XMLUtils.getFirstElementByTagName(eLexica, tag);
+		if (element == null) return () -> null;
+		
+		String path   = XMLUtils.getTrimmedTextContent(element);
+		String format = XMLUtils.getTrimmedAttribute(element, FORMAT);
+		String name   = XMLUtils.getTrimmedAttribute(element, NAME);
+		Field  field  = Field.valueOf(XMLUtils.getTrimmedAttribute(element, FIELD));
 		
-		String path = XMLUtils.getTrimmedTextContent(element);
-		ObjectInputStream oin = IOUtils.createObjectXZBufferedInputStream(IOUtils.getInputStream(path));
-		Field field = Field.valueOf(XMLUtils.getTrimmedAttribute(element, FIELD));
-		String name = XMLUtils.getTrimmedAttribute(element, NAME);
+		return () ->
+		{
+			long st = System.currentTimeMillis();
+			WordEmbeddingTable table = null;
+			
+			try
+			{
+				if (!FORMAT_TABLE.equals(format))
+					table = WordEmbeddingTable.fromMap(filter(readLexicon(path, format), field));
+				else
+				{
+					table = new File(path).isFile() ? WordEmbeddingTable.map(path) : WordEmbeddingTable.read(IOUtils.getInputStream(path));
+					if (vocabulary != null) table = table.filter(getVocabularyKeys(field));
+				}
+			}
+			catch (Exception e) {e.printStackTrace();}
+			
+			BinUtils.LOG.info(String.format("Loading %s: %d ms\n", tag, System.currentTimeMillis() - st));
+			return new GlobalLexicon<>(table, field, name);
+		};
+	}
+	
+	/** Gazetteers serialized as prefix trees are compiled into {@link GazetteerMatcher}. */
+	@SuppressWarnings("unchecked")
+	static protected GazetteerMatcher toGazetteerMatcher(Object lexicon)
+	{
+		return (lexicon instanceof PrefixTree) ? GazetteerMatcherBuilder.build((PrefixTree<String,Set<String>>)lexicon) : (GazetteerMatcher)lexicon;
+	}
+	
+	/** Word clusters serialized as maps of path prefixes are encoded into {@link WordClusterLexicon}. */
+	@SuppressWarnings("unchecked")
+	static protected WordClusterLexicon toWordClusterLexicon(Object lexicon)
+	{
+		return (lexicon instanceof Map) ? WordClusterLexicon.fromMap((Map<String,Set<String>>)lexicon) : (WordClusterLexicon)lexicon;
+	}
+	
+	/** Static string sets are frozen into {@link FrozenStringSet}. */
+	@SuppressWarnings("unchecked")
+	static protected Set<String> toFrozenStringSet(Object lexicon)
+	{
+		return (lexicon == null || lexicon instanceof FrozenStringSet) ? (Set<String>)lexicon : new FrozenStringSet((Set<String>)lexicon);
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected <T>T readLexicon(String path, String format)
+	{
 		T lexicon = null;
 		
 		try
 		{
-			lexicon = (T)oin.readObject();
-			oin.close();
+			if (FORMAT_INDEXED.equals(format))
+				lexicon = (T)IndexedLexicon.open(path, cache_size);
+			else
+			{
+				ObjectInputStream oin = IOUtils.createObjectXZBufferedInputStream(IOUtils.getInputStream(path));
+				lexicon = (T)oin.readObject();
+				oin.close();
+			}
 		}
 		catch (Exception e) {e.printStackTrace();}
-
-		return new GlobalLexicon<>(lexicon, field, name);
+		
+		return lexicon;
 	}
 	
 //	=================================== GETTERS/SETTERS ===================================
 	
 	public GlobalLexicon<Map<String,List<String>>> getAmbiguityClasses()
 	{
+		initLexica();
 		return ambiguity_classes;
 	}
 	
@@ -113,38 +333,54 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 		ambiguity_classes = classes;
 	}
 	
-	public GlobalLexicon<Map<String,Set<String>>> getWordClusters()
+	public GlobalLexicon<WordClusterLexicon> getWordClusters()
 	{
+		initLexica();
 		return word_clusters;
 	}
 	
-	public void setWordClusters(GlobalLexicon<Map<String,Set<String>>> p)
+	public void setWordClusters(GlobalLexicon<WordClusterLexicon> p)
 	{
 		word_clusters = p;
 	}
 	
-	public GlobalLexicon<Map<String,float[]>> getWordEmbeddings() 
+	/** @return the word clusters in the indexed format, whose prefixes are decoded per word on demand; null unless {@code format="indexed"}. */
+	public GlobalLexicon<Map<String,Set<String>>> getIndexedWordClusters()
 	{
+		initLexica();
+		return indexed_word_clusters;
+	}
+	
+	public void setIndexedWordClusters(GlobalLexicon<Map<String,Set<String>>> p)
+	{
+		indexed_word_clusters = p;
+	}
+	
+	public GlobalLexicon<WordEmbeddingTable> getWordEmbeddings() 
+	{
+		initLexica();
 		return word_embeddings;
 	}
 	
-	public void setWordEmbeddings(GlobalLexicon<Map<String,float[]>> embeddings) 
+	public void setWordEmbeddings(GlobalLexicon<WordEmbeddingTable> embeddings) 
 	{
 		word_embeddings = embeddings;
 	}
 	
-	public GlobalLexicon<PrefixTree<String,Set<String>>> getNamedEntityGazetteers()
+	public GlobalLexicon<GazetteerMatcher> getNamedEntityGazetteers()
 	{
+		initLexica();
 		return named_entity_gazetteers;
 	}
 	
-	public void setNamedEntityGazetteers(GlobalLexicon<PrefixTree<String,Set<String>>> gazetteers)
+	public void setNamedEntityGazetteers(GlobalLexicon<GazetteerMatcher> gazetteers)
 	{
 		named_entity_gazetteers = gazetteers;
 	}
 	
 	public GlobalLexicon<Set<String>> getStopWords()
 	{
+		initLexica();
 		return stop_words;
 	}
 	
@@ -158,6 +394,8 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 	@Override
 	public void process(List<N[]> document)
 	{
+		initLexica();
+		
 		for (N[] nodes : document)
 			process(nodes);
 	}
@@ -165,6 +403,7 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 	@Override
 	public void process(N[] nodes)
 	{
+		initLexica();
 		processAmbiguityClasses(nodes);
 		processWordClusters(nodes);
 		processWordEmbeddings(nodes);
@@ -188,64 +427,60 @@ public class GlobalLexica<N extends AbstractNLPNode<N>> implements NLPComponent<
 	
 	public void processWordClusters(N[] nodes)
 	{
+		if (indexed_word_clusters != null) {processIndexedWordClusters(nodes); return;}
 		if (word_clusters == null) return;
-		Set<String> set;
+		WordClusterLexicon lexicon = word_clusters.getLexicon();
+		N node;
+		
+		for (int i=1; i<nodes.length; i++)
+		{
+			node = nodes[i];
+			node.setWordClusters(lexicon, lexicon.getRow(getKey(node, word_clusters.getField())));
+		}
+	}
+	
+	/** The prefixes of each word are decoded from {@link IndexedLexicon} and cached up to {@link #CACHE_SIZE} words. */
+	public void processIndexedWordClusters(N[] nodes)
+	{
+		Map<String,Set<String>> lexicon = indexed_word_clusters.getLexicon();
 		N node;
 		
 		for (int i=1; i<nodes.length; i++)
 		{
 			node = nodes[i];
-			set  = word_clusters.getLexicon().get(getKey(node, word_clusters.getField()));
-			node.setWordClusters(set);
+			node.setWordClusters(lexicon.get(getKey(node, indexed_word_clusters.getField())));
 		}
 	}
 	
 	public void processWordEmbeddings(N[] nodes)
 	{
 		if (word_embeddings == null) return;
-		float[] embedding;
+		WordEmbeddingTable table = word_embeddings.getLexicon();
 		N node;
 		
 		for (int i=1; i<nodes.length; i++)
 		{
 			node = nodes[i];
-			embedding = word_embeddings.getLexicon().get(getKey(node, word_embeddings.getField()));
-			node.setWordEmbedding(embedding);
+			node.setWordEmbedding(table, table.getRow(getKey(node, word_embeddings.getField())));
 		}
 	}
 	
 	public void processNamedEntityGazetteers(N[] nodes)
 	{
 		if (named_entity_gazetteers == null) return;
-		List<ObjectIntIntTriple<Set<String>>> list = named_entity_gazetteers.getLexicon().getAll(nodes, 1, n -> getKey(n, named_entity_gazetteers.getField()), false, false);
-		
-		for (ObjectIntIntTriple<Set<String>> t : list)
-		{
-			for (String tag : t.o) 
-			{
-				if (t.i1 == t.i2)
-					nodes[t.i1].addNamedEntityGazetteer(BILOU.toBILOUTag(BILOU.U, tag));
-				else
-				{
-					nodes[t.i1].addNamedEntityGazetteer(BILOU.toBILOUTag(BILOU.B, tag));
-					nodes[t.i2].addNamedEntityGazetteer(BILOU.toBILOUTag(BILOU.L, tag));
-					
-					for (int j=t.i1+1; j<t.i2; j++)
-						nodes[j].addNamedEntityGazetteer(BILOU.toBILOUTag(BILOU.I, tag));
-				}	
-			}
-		}
+		named_entity_gazetteers.getLexicon().addNamedEntityGazetteers(nodes, n -> getKey(n, named_entity_gazetteers.getField()));
 	}
 	
 	public void processStopWords(N[] nodes)
 	{
 		if (stop_words == null) return;
+		Set<String> set = stop_words.getLexicon();
 		N node;
 		
 		for (int i=1; i<nodes.length; i++)
 		{
 			node = nodes[i];
-			node.setStopWord(stop_words.getLexicon().contains(getKey(node, stop_words.getField())));
+			node.setStopWord(set.contains(getKey(node, stop_words.getField())));
 		}
 	}
 	
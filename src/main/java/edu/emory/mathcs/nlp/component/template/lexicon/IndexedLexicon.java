@@ -0,0 +1,272 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lexicon whose values stay in a memory-mapped file and are decoded on demand.
+ * Only the keys are read into the heap; recently decoded values are kept in a bounded LRU cache.
+ * The values are mapped in chunks so the file can exceed 2GB.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class IndexedLexicon<V> extends AbstractMap<String,V>
+{
+	static final int MAGIC       = 0x4E4C504C;
+	static final int HEADER_SIZE = 24;
+	/** The default number of bytes in a memory-mapped chunk of values (must be a power of 2). */
+	static final int CHUNK_SIZE  = 1 << 30;
+	
+	private LexiconCodec  codec;
+	private WordIndex     index;
+	private ByteBuffer    offsets;	// row -> offset of the value (long)
+	private ByteBuffer[]  chunks;	// chunk i begins at the offset i * chunk_size and overlaps the next chunk by the maximum length of a value
+	private int           chunk_bits;
+	private Map<String,V> cache;
+	
+	private IndexedLexicon(LexiconCodec codec, WordIndex index, ByteBuffer offsets, ByteBuffer[] chunks, int chunkSize, int cacheSize)
+	{
+		this.codec   = codec;
+		this.index   = index;
+		this.offsets = offsets;
+		this.chunks  = chunks;
+		chunk_bits = Integer.numberOfTrailingZeros(chunkSize);
+		cache = (cacheSize > 0) ? createCache(cacheSize) : null;
+	}
+	
+	private Map<String,V> createCache(int cacheSize)
+	{
+		return new LinkedHashMap<String,V>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 3718257069232415522L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String,V> eldest)
+			{
+				return size() > cacheSize;
+			}
+		};
+	}
+	
+//	=================================== GETTERS ===================================
+	
+	@Override
+	public V get(Object key)
+	{
+		if (!(key instanceof String)) return null;
+		int row = index.get((String)key);
+		if (row < 0) return null;
+		if (cache == null) return decode(row);
+		V value;
+		
+		synchronized (cache)
+		{
+			value = cache.get(key);
+		}
+		
+		if (value == null)
+		{
+			value = decode(row);
+			
+			synchronized (cache)
+			{
+				cache.put((String)key, value);
+			}
+		}
+		
+		return value;
+	}
+	
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return (key instanceof String) && index.contains((String)key);
+	}
+	
+	@Override
+	public int size()
+	{
+		return index.size();
+	}
+	
+	/** @return an in-memory map consisting of only the entries whose keys are in the collection. */
+	public Map<String,V> filter(Collection<String> keys)
+	{
+		Map<String,V> map = new HashMap<>();
+		int row;
+		
+		for (String key : keys)
+		{
+			if ((row = index.get(key)) >= 0)
+				map.put(key, decode(row));
+		}
+		
+		return map;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private V decode(int row)
+	{
+		long offset = offsets.getLong(row * 8);
+		return (V)codec.decode(chunks[(int)(offset >>> chunk_bits)], (int)(offset & ((1 << chunk_bits) - 1)));
+	}
+	
+	@Override
+	public Set<Entry<String,V>> entrySet()
+	{
+		return new AbstractSet<Entry<String,V>>()
+		{
+			@Override
+			public Iterator<Entry<String,V>> iterator()
+			{
+				return new Iterator<Entry<String,V>>()
+				{
+					int row = 0;
+					
+					@Override
+					public boolean hasNext()
+					{
+						return row < index.size();
+					}
+					
+					@Override
+					public Entry<String,V> next()
+					{
+						Entry<String,V> e = new SimpleImmutableEntry<>(index.getKey(row), decode(row));
+						row++;
+						return e;
+					}
+				};
+			}
+			
+			@Override
+			public int size()
+			{
+				return index.size();
+			}
+		};
+	}
+	
+//	=================================== IO ===================================
+	
+	/**
+	 * Saves the map as [header][offsets][values][keys], where the values are encoded twice to stream both the offsets and the values.
+	 * The header consists of the magic number, the codec, the number of entries, the maximum length of a value, and the total length of the values.
+	 */
+	static public void save(Map<String,?> map, String filename) throws IOException
+	{
+		LexiconCodec codec = map.isEmpty() ? LexiconCodec.string_list : LexiconCodec.valueOf(map.values().iterator().next());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+		FileOutputStream fout = new FileOutputStream(filename);
+		FileChannel channel = fout.getChannel();
+		channel.position(HEADER_SIZE);
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+		long length = 0;
+		int maxLength = 0;
+		
+		for (Object value : map.values())
+		{
+			out.write(buffer.putLong(0, length).array());
+			bytes.reset();
+			codec.encode(bytes, value);
+			length += bytes.size();
+			maxLength = Math.max(maxLength, bytes.size());
+		}
+		
+		out.write(buffer.putLong(0, length).array());
+		
+		for (Object value : map.values())
+		{
+			bytes.reset();
+			codec.encode(bytes, value);
+			bytes.writeTo(out);
+		}
+		
+		for (String key : map.keySet())
+			out.writeUTF(key);
+		
+		out.flush();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(codec.ordinal()).putInt(map.size()).putInt(maxLength).putLong(length).flip();
+		while (header.hasRemaining()) channel.write(header, header.position());
+		out.close();
+	}
+	
+	/** @param cacheSize the maximum number of decoded values to keep; no caching if {@code cacheSize <= 0}. */
+	static public <V>IndexedLexicon<V> open(String filename, int cacheSize) throws IOException
+	{
+		return open(filename, cacheSize, CHUNK_SIZE);
+	}
+	
+	/** @param chunkSize the number of bytes in a memory-mapped chunk of values, which must be a power of 2. */
+	static <V>IndexedLexicon<V> open(String filename, int cacheSize, int chunkSize) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		FileChannel channel = file.getChannel();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining() && channel.read(header) >= 0);
+		header.flip();
+		
+		if (header.getInt() != MAGIC)
+		{
+			file.close();
+			throw new IOException("Not an indexed lexicon: "+filename);
+		}
+		
+		LexiconCodec codec = LexiconCodec.values()[header.getInt()];
+		int size = header.getInt(), maxLength = header.getInt();
+		long length = header.getLong(), position = HEADER_SIZE + (size + 1) * 8L;
+		ByteBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, position - HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer[] chunks = new ByteBuffer[(int)((length + chunkSize - 1) / chunkSize)];
+		
+		for (int i=0; i<chunks.length; i++)
+		{
+			long begin = (long)i * chunkSize;
+			chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + begin, Math.min(chunkSize + maxLength, length - begin)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(position + length))));
+		WordIndex index = new WordIndex(size);
+		
+		for (int row=0; row<size; row++)
+			index.add(in.readUTF());
+		
+		index.trim();
+		file.close();
+		return new IndexedLexicon<>(codec, index, offsets, chunks, chunkSize, cacheSize);
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * Binary encodings of the values in {@link IndexedLexicon}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public enum LexiconCodec
+{
+	string_list,	// List<String>, e.g., ambiguity classes
+	string_set;		// Set<String> , e.g., word clusters
+	
+	/** @return the codec that can encode the value. */
+	static public LexiconCodec valueOf(Object value)
+	{
+		if (value instanceof java.util.List) return string_list;
+		if (value instanceof java.util.Set)  return string_set;
+		throw new IllegalArgumentException("Unsupported value type: "+value.getClass());
+	}
+	
+	/** Encodes the collection as [size]([length][utf-8])*. */
+	public void encode(ByteArrayOutputStream out, Object value)
+	{
+		Collection<?> collection = (Collection<?>)value;
+		writeInt(out, collection.size());
+		byte[] b;
+		
+		for (Object s : collection)
+		{
+			b = s.toString().getBytes(StandardCharsets.UTF_8);
+			writeInt(out, b.length);
+			out.write(b, 0, b.length);
+		}
+	}
+	
+	/** Decodes the value encoded at the absolute position of the buffer. */
+	public Object decode(ByteBuffer buffer, int position)
+	{
+		int size = buffer.getInt(position);
+		Collection<String> collection = (this == string_list) ? new ArrayList<>(size) : new HashSet<>();
+		byte[] b;
+		
+		position += 4;
+		
+		for (int i=0; i<size; i++)
+		{
+			b = new byte[buffer.getInt(position)];
+			position += 4;
+			
+			for (int j=0; j<b.length; j++)
+				b[j] = buffer.get(position++);
+			
+			collection.add(new String(b, StandardCharsets.UTF_8));
+		}
+		
+		return collection;
+	}
+	
+	static void writeInt(ByteArrayOutputStream out, int value)
+	{
+		out.write(value);
+		out.write(value >>>  8);
+		out.write(value >>> 16);
+		out.write(value >>> 24);
+	}
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Brown clusters where each word points to one bit-string path encoded in a long (e.g., "1011").
+ * Prefixes of the paths used as features (e.g., "10", "1011") are assigned consecutive ids in {@code [0, getPrefixSize())}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class WordClusterLexicon implements Serializable
+{
+	private static final long serialVersionUID = -2719451203474807313L;
+	/** The maximum length of a path. */
+	static public final int MAX_LENGTH  = 58;
+	static private final int LENGTH_SHIFT = 58;
+	
+	private WordIndex words;
+	private int[]     word_clusters;	// word row -> cluster id
+	private long[]    cluster_paths;	// cluster id -> encoded path
+	private int[][]   cluster_prefixes;	// cluster id -> prefix ids
+	private String[]  prefixes;			// prefix id -> prefix
+	private int       cluster_size;
+	private int       prefix_size;
+	
+	// used only while words are added
+	private transient Long2IntMap           cluster_ids;
+	private transient Object2IntMap<String> prefix_ids;
+	
+	public WordClusterLexicon()
+	{
+		words            = new WordIndex();
+		word_clusters    = new int[16];
+		cluster_paths    = new long[16];
+		cluster_prefixes = new int[16][];
+		prefixes         = new String[16];
+	}
+	
+	/** @param map word -> prefixes of its path, where the longest prefix is the path itself (see {@link edu.emory.mathcs.nlp.bin.BrownClusterExtract}). */
+	static public WordClusterLexicon fromMap(Map<String,? extends Collection<String>> map)
+	{
+		WordClusterLexicon lexicon = new WordClusterLexicon();
+		
+		for (Entry<String,? extends Collection<String>> e : map.entrySet())
+		{
+			if (e.getValue() != null && !e.getValue().isEmpty())
+				lexicon.add(e.getKey(), e.getValue());
+		}
+		
+		lexicon.trim();
+		return lexicon;
+	}
+	
+	/**
+	 * Adds the word, whose path is taken from the longest prefix.
+	 * The prefixes are stored only when the path is seen for the first time.
+	 */
+	public void add(String word, Collection<String> prefixes)
+	{
+		long path = encode(prefixes.stream().max(Comparator.comparingInt(String::length)).get());
+		initBuildMaps();
+		int cluster = cluster_ids.getOrDefault(path, -1);
+		
+		if (cluster < 0)
+		{
+			cluster = cluster_size++;
+			cluster_ids.put(path, cluster);
+			
+			if (cluster == cluster_paths.length)
+			{
+				cluster_paths    = Arrays.copyOf(cluster_paths   , cluster * 2);
+				cluster_prefixes = Arrays.copyOf(cluster_prefixes, cluster * 2);
+			}
+			
+			cluster_paths   [cluster] = path;
+			cluster_prefixes[cluster] = prefixes.stream().mapToInt(this::addPrefix).toArray();
+		}
+		
+		int row = words.add(word);
+		if (row == word_clusters.length) word_clusters = Arrays.copyOf(word_clusters, row * 2);
+		word_clusters[row] = cluster;
+	}
+	
+	private int addPrefix(String prefix)
+	{
+		int id = prefix_ids.getOrDefault(prefix, -1);
+		
+		if (id < 0)
+		{
+			id = prefix_size++;
+			prefix_ids.put(prefix, id);
+			if (id == prefixes.length) prefixes = Arrays.copyOf(prefixes, id * 2);
+			prefixes[id] = prefix;
+		}
+		
+		return id;
+	}
+	
+	private void initBuildMaps()
+	{
+		if (cluster_ids != null) return;
+		cluster_ids = new Long2IntOpenHashMap();
+		prefix_ids  = new Object2IntOpenHashMap<>();
+		
+		for (int i=0; i<cluster_size; i++) cluster_ids.put(cluster_paths[i], i);
+		for (int i=0; i<prefix_size ; i++) prefix_ids .put(prefixes[i], i);
+	}
+	
+	/** Releases the memory used only while words are added. */
+	public void trim()
+	{
+		words.trim();
+		word_clusters    = Arrays.copyOf(word_clusters, words.size());
+		cluster_paths    = Arrays.copyOf(cluster_paths, cluster_size);
+		cluster_prefixes = Arrays.copyOf(cluster_prefixes, cluster_size);
+		prefixes         = Arrays.copyOf(prefixes, prefix_size);
+		cluster_ids      = null;
+		prefix_ids       = null;
+	}
+	
+	/** @return a lexicon containing only the specific words; the prefix ids are the same as this lexicon's. */
+	public WordClusterLexicon filter(Collection<String> words)
+	{
+		WordClusterLexicon lexicon = new WordClusterLexicon();
+		IntArrayList clusters = new IntArrayList();
+		lexicon.words = new WordIndex(words.size());
+		int row;
+		
+		for (String word : words)
+		{
+			if ((row = getRow(word)) >= 0 && lexicon.words.add(word) == clusters.size())
+				clusters.add(word_clusters[row]);
+		}
+		
+		lexicon.words.trim();
+		lexicon.word_clusters    = clusters.toIntArray();
+		lexicon.cluster_paths    = Arrays.copyOf(cluster_paths, cluster_size);
+		lexicon.cluster_prefixes = Arrays.copyOf(cluster_prefixes, cluster_size);
+		lexicon.prefixes         = Arrays.copyOf(prefixes, prefix_size);
+		lexicon.cluster_size     = cluster_size;
+		lexicon.prefix_size      = prefix_size;
+		return lexicon;
+	}
+
+//	=================================== GETTERS ===================================
+	
+	/** @return the row of the word if exists; otherwise, -1. */
+	public int getRow(String word)
+	{
+		return (word != null) ? words.get(word) : -1;
+	}
+	
+	/** @return the ids of the prefixes of the word's path; the returned array must not be modified. */
+	public int[] getPrefixIds(int row)
+	{
+		return cluster_prefixes[word_clusters[row]];
+	}
+	
+	/** @return the prefixes of the word's path. */
+	public Set<String> getPrefixes(int row)
+	{
+		int[] ids = getPrefixIds(row);
+		Set<String> set = new HashSet<>();
+		for (int id : ids) set.add(prefixes[id]);
+		return set;
+	}
+	
+	/** @return the encoded path of the word. */
+	public long getPath(int row)
+	{
+		return cluster_paths[word_clusters[row]];
+	}
+	
+	public String getPrefix(int prefixId)
+	{
+		return prefixes[prefixId];
+	}
+	
+	/** @return the total number of distinct prefixes. */
+	public int getPrefixSize()
+	{
+		return prefix_size;
+	}
+	
+	/** @return the total number of distinct paths. */
+	public int getClusterSize()
+	{
+		return cluster_size;
+	}
+	
+	/** @return the total number of words. */
+	public int size()
+	{
+		return words.size();
+	}
+
+//	=================================== ENCODING ===================================
+	
+	/** @return the path (e.g., "1011") encoded as {@code length << 58 | bits}. */
+	static public long encode(String path)
+	{
+		int length = path.length();
+		if (length > MAX_LENGTH) throw new IllegalArgumentException("The path exceeds "+MAX_LENGTH+" bits: "+path);
+		long bits = 0;
+		char c;
+		
+		for (int i=0; i<length; i++)
+		{
+			c = path.charAt(i);
+			if (c != '0' && c != '1') throw new IllegalArgumentException("Not a bit-string: "+path);
+			bits = (bits << 1) | (c - '0');
+		}
+		
+		return ((long)length << LENGTH_SHIFT) | bits;
+	}
+	
+	static public String decode(long path)
+	{
+		int length = (int)(path >>> LENGTH_SHIFT);
+		char[] cs = new char[length];
+		
+		for (int i=length-1; i>=0; i--,path>>>=1)
+			cs[i] = (char)('0' + (path & 1));
+		
+		return new String(cs);
+	}
+}
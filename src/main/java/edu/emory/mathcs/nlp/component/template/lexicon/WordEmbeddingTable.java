@@ -0,0 +1,438 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Word embeddings stored as one contiguous matrix outside of the Java heap.
+ * The matrix is either read into direct buffers or memory-mapped from a file written by {@link #save(String)}.
+ * Rows in the {@link EmbeddingFormat#float16} and {@link EmbeddingFormat#int8} formats are dequantized while being copied.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class WordEmbeddingTable
+{
+	static final int MAGIC       = 0x4E4C5045;
+	static final int HEADER_SIZE = 16;
+	static final float[] HALF_TO_FLOAT = createHalfToFloatTable();
+	
+	private EmbeddingFormat format;
+	private WordIndex    index;
+	private ByteBuffer[] chunks;
+	private int          rows_per_chunk;
+	private int          dimension;
+	
+	/** Creates a table whose rows are allocated in direct buffers. */
+	public WordEmbeddingTable(WordIndex index, int dimension)
+	{
+		this(index, dimension, EmbeddingFormat.float32);
+	}
+	
+	public WordEmbeddingTable(WordIndex index, int dimension, EmbeddingFormat format)
+	{
+		init(index, index.size(), dimension, format);
+		
+		for (int i=0; i<chunks.length; i++)
+			chunks[i] = ByteBuffer.allocateDirect(getChunkRows(i) * getRowBytes()).order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	private WordEmbeddingTable() {}
+	
+	private void init(WordIndex index, int size, int dimension, EmbeddingFormat format)
+	{
+		this.index     = index;
+		this.dimension = dimension;
+		this.format    = format;
+		rows_per_chunk = Integer.MAX_VALUE / Math.max(1, getRowBytes());
+		chunks = new ByteBuffer[(size + rows_per_chunk - 1) / rows_per_chunk];
+	}
+	
+	static public WordEmbeddingTable fromMap(Map<String,float[]> map)
+	{
+		WordIndex index = new WordIndex(map.size());
+		int dimension = 0;
+		
+		for (Entry<String,float[]> e : map.entrySet())
+		{
+			index.add(e.getKey());
+			dimension = e.getValue().length;
+		}
+		
+		index.trim();
+		WordEmbeddingTable table = new WordEmbeddingTable(index, dimension);
+		
+		for (Entry<String,float[]> e : map.entrySet())
+			table.set(index.get(e.getKey()), e.getValue());
+		
+		return table;
+	}
+	
+	/** @return a copy of this table whose rows are stored in the specific format. */
+	public WordEmbeddingTable quantize(EmbeddingFormat format)
+	{
+		WordEmbeddingTable table = new WordEmbeddingTable(index, dimension, format);
+		float[] v = new float[dimension];
+		
+		for (int row=0; row<size(); row++)
+		{
+			copy(row, v, 0);
+			table.set(row, v);
+		}
+		
+		return table;
+	}
+
+	/** @return a copy of this table consisting of only the words in the collection. */
+	public WordEmbeddingTable filter(Collection<String> words)
+	{
+		WordIndex subset = new WordIndex(words.size());
+		IntArrayList rows = new IntArrayList();
+		int row;
+		
+		for (String word : words)
+		{
+			if ((row = getRow(word)) >= 0 && subset.add(word) == rows.size())
+				rows.add(row);
+		}
+		
+		subset.trim();
+		WordEmbeddingTable table = new WordEmbeddingTable(subset, dimension, format);
+		int rowBytes = getRowBytes();
+		
+		for (int i=0; i<rows.size(); i++)
+		{
+			row = rows.getInt(i);
+			ByteBuffer source = chunks[row / rows_per_chunk].duplicate();
+			source.position((row % rows_per_chunk) * rowBytes);
+			source.limit(source.position() + rowBytes);
+			ByteBuffer target = table.chunks[i / rows_per_chunk].duplicate();
+			target.position((i % rows_per_chunk) * rowBytes);
+			target.put(source);
+		}
+		
+		return table;
+	}
+
+//	=================================== GETTERS ===================================
+	
+	/** @return the row index of the word if exists; otherwise, -1. */
+	public int getRow(String word)
+	{
+		return (word != null) ? index.get(word) : -1;
+	}
+	
+	/** @return a copy of the embedding of the word if exists; otherwise, null. */
+	public float[] get(String word)
+	{
+		int row = getRow(word);
+		return (row < 0) ? null : get(row);
+	}
+	
+	public float[] get(int row)
+	{
+		float[] v = new float[dimension];
+		copy(row, v, 0);
+		return v;
+	}
+	
+	/** Copies the embedding in the row to {@code dest[offset:offset+dimension]}. */
+	public void copy(int row, float[] dest, int offset)
+	{
+		decode(row, dest, offset, false);
+	}
+	
+	/** Adds the embedding in the row to {@code dest}. */
+	public void add(int row, float[] dest)
+	{
+		decode(row, dest, 0, true);
+	}
+	
+	private void decode(int row, float[] dest, int offset, boolean add)
+	{
+		ByteBuffer b = chunks[row / rows_per_chunk];
+		int p = (row % rows_per_chunk) * getRowBytes();
+		float f;
+		
+		switch (format)
+		{
+		case float16:
+			for (int i=offset; i<offset+dimension; i++,p+=2)
+			{
+				f = HALF_TO_FLOAT[b.getShort(p) & 0xffff];
+				dest[i] = add ? dest[i] + f : f;
+			}
+			break;
+		case int8:
+			float scale = b.getFloat(p);
+			p += 4;
+			
+			for (int i=offset; i<offset+dimension; i++,p++)
+			{
+				f = scale * b.get(p);
+				dest[i] = add ? dest[i] + f : f;
+			}
+			break;
+		default:
+			for (int i=offset; i<offset+dimension; i++,p+=4)
+			{
+				f = b.getFloat(p);
+				dest[i] = add ? dest[i] + f : f;
+			}
+		}
+	}
+	
+	public WordIndex getIndex()
+	{
+		return index;
+	}
+	
+	public int getDimension()
+	{
+		return dimension;
+	}
+	
+	public EmbeddingFormat getFormat()
+	{
+		return format;
+	}
+	
+	/** @return the number of bytes used by all rows. */
+	public long getByteSize()
+	{
+		return (long)size() * getRowBytes();
+	}
+	
+	public int size()
+	{
+		return index.size();
+	}
+	
+	private int getRowBytes()
+	{
+		return format.getRowBytes(dimension);
+	}
+	
+	private int getChunkRows(int chunk)
+	{
+		return Math.min(rows_per_chunk, index.size() - chunk * rows_per_chunk);
+	}
+
+//	=================================== SETTERS ===================================
+	
+	public void set(int row, float[] embedding)
+	{
+		encode(format, embedding, dimension, chunks[row / rows_per_chunk], (row % rows_per_chunk) * getRowBytes());
+	}
+	
+	/** Encodes the embedding in the format to {@code b[p:p+format.getRowBytes(dimension)]}. */
+	static void encode(EmbeddingFormat format, float[] embedding, int dimension, ByteBuffer b, int p)
+	{
+		switch (format)
+		{
+		case float16:
+			for (int i=0; i<dimension; i++,p+=2)
+				b.putShort(p, toHalf(embedding[i]));
+			break;
+		case int8:
+			float max = 0;
+			
+			for (int i=0; i<dimension; i++)
+				max = Math.max(max, Math.abs(embedding[i]));
+			
+			float scale = max / 127;
+			b.putFloat(p, scale);
+			p += 4;
+			
+			for (int i=0; i<dimension; i++,p++)
+				b.put(p, (scale == 0) ? 0 : (byte)Math.round(embedding[i] / scale));
+			break;
+		default:
+			for (int i=0; i<dimension; i++,p+=4)
+				b.putFloat(p, embedding[i]);
+		}
+	}
+
+//	=================================== HALF PRECISION ===================================
+	
+	/** @return the half precision bits of the float value, rounded to the nearest. */
+	static short toHalf(float f)
+	{
+		int bits = Float.floatToIntBits(f);
+		int sign = (bits >>> 16) & 0x8000;
+		int abs  = bits & 0x7fffffff;
+		int val  = abs + 0x1000;
+		
+		if (val >= 0x47800000)		// overflow, infinity, or NaN
+		{
+			if (abs < 0x47800000) return (short)(sign | 0x7bff);
+			if (abs <= 0x7f800000) return (short)(sign | 0x7c00);
+			return (short)(sign | 0x7c00 | ((bits & 0x007fffff) >>> 13) | 1);
+		}
+		
+		if (val >= 0x38800000)		// normal
+			return (short)(sign | ((val - 0x38000000) >>> 13));
+		
+		if (val < 0x33000000)		// too small
+			return (short)sign;
+		
+		val = abs >>> 23;			// subnormal
+		return (short)(sign | ((((abs & 0x7fffff) | 0x800000) + (0x800000 >>> (val - 102))) >>> (126 - val)));
+	}
+	
+	static private float[] createHalfToFloatTable()
+	{
+		float[] table = new float[1 << 16];
+		int sign, exp, mant;
+		float f;
+		
+		for (int h=0; h<table.length; h++)
+		{
+			sign = h >>> 15;
+			exp  = (h >>> 10) & 0x1f;
+			mant = h & 0x3ff;
+			
+			if      (exp ==  0) f = mant * 0x1p-24f;
+			else if (exp == 31) f = (mant == 0) ? Float.POSITIVE_INFINITY : Float.NaN;
+			else				f = Float.intBitsToFloat(((exp + 112) << 23) | (mant << 13));
+			
+			table[h] = (sign == 0) ? f : -f;
+		}
+		
+		return table;
+	}
+
+//	=================================== IO ===================================
+	
+	/**
+	 * Saves this table as [header][rows][words].
+	 * The header consists of the magic number, the format, the number of rows, and the dimension.
+	 */
+	public void save(String filename) throws IOException
+	{
+		FileOutputStream fout = new FileOutputStream(filename);
+		FileChannel channel = fout.getChannel();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(format.ordinal()).putInt(size()).putInt(dimension).flip();
+		channel.write(header);
+		
+		for (ByteBuffer chunk : chunks)
+		{
+			ByteBuffer b = chunk.duplicate();
+			b.clear();
+			while (b.hasRemaining()) channel.write(b);
+		}
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+		
+		for (int row=0; row<size(); row++)
+			out.writeUTF(index.getKey(row));
+		
+		out.close();
+	}
+	
+	/** Memory-maps the rows of the table saved in the file; only the words are read into the heap. */
+	static public WordEmbeddingTable map(String filename) throws IOException
+	{
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		FileChannel channel = file.getChannel();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining() && channel.read(header) >= 0);
+		header.flip();
+		
+		if (header.getInt() != MAGIC)
+		{
+			file.close();
+			throw new IOException("Not a word embedding table: "+filename);
+		}
+		
+		EmbeddingFormat format = EmbeddingFormat.values()[header.getInt()];
+		int size = header.getInt();
+		WordEmbeddingTable table = new WordEmbeddingTable();
+		table.init(new WordIndex(size), size, header.getInt(), format);
+		long position = HEADER_SIZE;
+		
+		for (int i=0; i<table.chunks.length; i++)
+		{
+			long length = (long)Math.min(table.rows_per_chunk, size - i * table.rows_per_chunk) * table.getRowBytes();
+			table.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+			position += length;
+		}
+		
+		channel.position(position);
+		readWords(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))), table.index, size);
+		file.close();
+		return table;
+	}
+	
+	/** Reads the table saved by {@link #save(String)} into direct buffers. */
+	static public WordEmbeddingTable read(InputStream in) throws IOException
+	{
+		DataInputStream din = new DataInputStream(new BufferedInputStream(in));
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		din.readFully(header.array());
+		
+		if (header.getInt() != MAGIC)
+			throw new IOException("Not a word embedding table");
+		
+		EmbeddingFormat format = EmbeddingFormat.values()[header.getInt()];
+		int size = header.getInt();
+		WordEmbeddingTable table = new WordEmbeddingTable();
+		table.init(new WordIndex(size), size, header.getInt(), format);
+		byte[] buffer = new byte[table.getRowBytes()];
+		
+		for (int i=0; i<table.chunks.length; i++)
+		{
+			int rows = Math.min(table.rows_per_chunk, size - i * table.rows_per_chunk);
+			ByteBuffer chunk = ByteBuffer.allocateDirect(rows * table.getRowBytes()).order(ByteOrder.LITTLE_ENDIAN);
+			
+			for (int j=0; j<rows; j++)
+			{
+				din.readFully(buffer);
+				chunk.put(buffer);
+			}
+			
+			table.chunks[i] = chunk;
+		}
+		
+		readWords(din, table.index, size);
+		din.close();
+		return table;
+	}
+	
+	static private void readWords(DataInputStream in, WordIndex index, int size) throws IOException
+	{
+		for (int row=0; row<size; row++)
+			index.add(in.readUTF());
+		
+		index.trim();
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Writes the file of {@link WordEmbeddingTable} row by row so that the embeddings never need to be in memory at once.
+ * Only the words are kept until {@link #close()}, which appends them and fills in the number of rows.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class WordEmbeddingTableWriter implements Closeable
+{
+	static private final int BUFFER_SIZE = 1 << 20;
+	
+	private Path             path;
+	private RandomAccessFile file;
+	private FileChannel      channel;
+	private ByteBuffer       buffer;
+	private WordIndex        index;
+	private EmbeddingFormat  format;
+	private int              dimension;
+	
+	public WordEmbeddingTableWriter(String filename, int dimension, EmbeddingFormat format) throws IOException
+	{
+		this.dimension = dimension;
+		this.format    = format;
+		
+		path    = Paths.get(filename);
+		file    = new RandomAccessFile(filename, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		buffer  = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, format.getRowBytes(dimension))).order(ByteOrder.LITTLE_ENDIAN);
+		index   = new WordIndex();
+		buffer.position(WordEmbeddingTable.HEADER_SIZE);
+	}
+	
+	/** Appends the embedding of the word. @return false if the word has already been added. */
+	public boolean add(String word, float[] embedding) throws IOException
+	{
+		if (embedding.length != dimension) throw new IllegalArgumentException(String.format("Dimension mismatch: %s %d != %d", word, embedding.length, dimension));
+		int size = index.size();
+		if (index.add(word) < size) return false;
+		int rowBytes = format.getRowBytes(dimension);
+		
+		if (buffer.remaining() < rowBytes) flush();
+		WordEmbeddingTable.encode(format, embedding, dimension, buffer, buffer.position());
+		buffer.position(buffer.position() + rowBytes);
+		return true;
+	}
+	
+	/** @return the number of rows written so far. */
+	public int size()
+	{
+		return index.size();
+	}
+	
+	private void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+	
+	/** Closes and deletes the file without completing the table. */
+	public void abort() throws IOException
+	{
+		file.close();
+		Files.deleteIfExists(path);
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		flush();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+		
+		for (int row=0; row<index.size(); row++)
+			out.writeUTF(index.getKey(row));
+		
+		out.flush();
+		ByteBuffer header = ByteBuffer.allocate(WordEmbeddingTable.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(WordEmbeddingTable.MAGIC).putInt(format.ordinal()).putInt(index.size()).putInt(dimension).flip();
+		while (header.hasRemaining()) channel.write(header, header.position());
+		out.close();
+		file.close();
+	}
+}
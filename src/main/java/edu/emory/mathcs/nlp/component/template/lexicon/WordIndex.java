@@ -0,0 +1,181 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from words to consecutive row indices.
+ * All keys are packed into a single character array so that large vocabularies do not create one object per word.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class WordIndex implements Serializable
+{
+	private static final long serialVersionUID = 6290148476531260927L;
+	private char[] keys;
+	private int[]  key_offsets;
+	private int[]  key_hashes;
+	private int[]  slots;	// row + 1; 0 indicates an empty slot
+	private int    size;
+	
+	public WordIndex()
+	{
+		this(16);
+	}
+	
+	public WordIndex(int initialCapacity)
+	{
+		initialCapacity = Math.max(initialCapacity, 2);
+		keys        = new char[initialCapacity * 8];
+		key_offsets = new int[initialCapacity + 1];
+		key_hashes  = new int[initialCapacity];
+		slots       = new int[tableSize(initialCapacity)];
+		size        = 0;
+	}
+
+//	=================================== GETTERS ===================================
+	
+	/** @return the row index of the key if exists; otherwise, -1. */
+	public int get(CharSequence key)
+	{
+		int hash = hash(key), mask = slots.length - 1, row;
+		
+		for (int i=hash&mask; (row = slots[i]) > 0; i=(i+1)&mask)
+		{
+			if (key_hashes[--row] == hash && equals(row, key))
+				return row;
+		}
+		
+		return -1;
+	}
+	
+	public boolean contains(CharSequence key)
+	{
+		return get(key) >= 0;
+	}
+	
+	public String getKey(int row)
+	{
+		return new String(keys, key_offsets[row], key_offsets[row+1] - key_offsets[row]);
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+
+//	=================================== SETTERS ===================================
+	
+	/** Adds the key if absent. @return the row index of the key. */
+	public int add(CharSequence key)
+	{
+		int hash = hash(key), mask = slots.length - 1, row, i;
+		
+		for (i=hash&mask; (row = slots[i]) > 0; i=(i+1)&mask)
+		{
+			if (key_hashes[--row] == hash && equals(row, key))
+				return row;
+		}
+		
+		row = size++;
+		ensureCapacity(key.length());
+		int begin = key_offsets[row];
+		
+		for (int j=0; j<key.length(); j++)
+			keys[begin+j] = key.charAt(j);
+		
+		key_offsets[row+1] = begin + key.length();
+		key_hashes [row]   = hash;
+		slots[i] = row + 1;
+		
+		if (size * 2 > slots.length) rehash();
+		return row;
+	}
+	
+	/** Releases the extra capacity reserved for adding more keys. */
+	public void trim()
+	{
+		keys        = Arrays.copyOf(keys, key_offsets[size]);
+		key_offsets = Arrays.copyOf(key_offsets, size+1);
+		key_hashes  = Arrays.copyOf(key_hashes, size);
+	}
+	
+	private void ensureCapacity(int keyLength)
+	{
+		if (size >= key_hashes.length)
+		{
+			key_hashes  = Arrays.copyOf(key_hashes , size * 2);
+			key_offsets = Arrays.copyOf(key_offsets, size * 2 + 1);
+		}
+		
+		int length = key_offsets[size-1] + keyLength;
+		
+		if (length > keys.length)
+			keys = Arrays.copyOf(keys, Math.max(length, keys.length * 2));
+	}
+	
+	private void rehash()
+	{
+		slots = new int[tableSize(size)];
+		int mask = slots.length - 1, i;
+		
+		for (int row=0; row<size; row++)
+		{
+			for (i=key_hashes[row]&mask; slots[i] > 0; i=(i+1)&mask);
+			slots[i] = row + 1;
+		}
+	}
+
+//	=================================== HELPERS ===================================
+	
+	private boolean equals(int row, CharSequence key)
+	{
+		int begin = key_offsets[row], length = key_offsets[row+1] - begin;
+		if (length != key.length()) return false;
+		
+		for (int i=0; i<length; i++)
+		{
+			if (keys[begin+i] != key.charAt(i))
+				return false;
+		}
+		
+		return true;
+	}
+	
+	static int hash(CharSequence key)
+	{
+		int h = 0;
+		
+		if (key instanceof String)
+			h = key.hashCode();
+		else
+		{
+			for (int i=0; i<key.length(); i++)
+				h = 31 * h + key.charAt(i);
+		}
+		
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	static private int tableSize(int capacity)
+	{
+		int n = 4;
+		while (n < capacity * 2) n <<= 1;
+		return n * 2;
+	}
+}
@@ -15,6 +15,8 @@
  */
 package edu.emory.mathcs.nlp.component.template.node;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -34,10 +36,13 @@ import edu.emory.mathcs.nlp.common.collection.tuple.Pair;
 import edu.emory.mathcs.nlp.common.constant.StringConst;
 import edu.emory.mathcs.nlp.common.util.DSUtils;
 import edu.emory.mathcs.nlp.common.util.Joiner;
+import edu.emory.mathcs.nlp.common.util.MathUtils;
 import edu.emory.mathcs.nlp.common.util.StringUtils;
 import edu.emory.mathcs.nlp.component.dep.DEPArc;
 import edu.emory.mathcs.nlp.component.template.feature.Direction;
 import edu.emory.mathcs.nlp.component.template.feature.Field;
+import edu.emory.mathcs.nlp.component.template.lexicon.WordClusterLexicon;
+import edu.emory.mathcs.nlp.component.template.lexicon.WordEmbeddingTable;
 import edu.emory.mathcs.nlp.component.template.reader.TSVReader;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
@@ -48,6 +53,9 @@ import it.unimi.dsi.fastutil.ints.IntSet;
 public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements Serializable, Comparable<N>
 {
 	private static final long serialVersionUID = -6890831718184647451L;
+	@SuppressWarnings("rawtypes")
+	static private final SortedArrayList EMPTY_DEPENDENTS = new SortedArrayList<>(0);
+	static private final int DEPENDENT_CAPACITY = 4;
 	static final String ROOT_TAG = "@#r$%";
 	
 	// core fields
@@ -71,7 +79,8 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	protected String word_form_simplified;
 	protected String word_form_undigitalized;
 	protected String word_form_simplified_lowercase;
-	protected SortedArrayList<N> dependent_list;
+	protected SortedArrayList<N> dependent_list;	// shares EMPTY_DEPENDENTS until the first dependent is added
+	protected int left_dependent_size;			// number of dependents on the left-hand side of this node
 	
 	// lexica
 	protected Set<String>  named_entity_gazetteers;
@@ -79,6 +88,15 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	protected Set<String>  word_clusters;
 	protected float[]      word_embedding;
 	protected boolean      stop_word;
+	protected transient WordEmbeddingTable word_embedding_table;
+	protected int          word_embedding_row;
+	protected transient WordClusterLexicon word_cluster_lexicon;
+	protected int          word_cluster_row;
+	
+	// attached by DependencyTreeIndex#attach
+	protected transient DependencyTreeIndex<N> tree_index;
+	// attached by TokenFeatureCache#attach
+	protected transient TokenFeatureCache<N> token_feature_cache;
 	
 	public abstract N self();
 	
@@ -94,7 +112,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	
 	public AbstractNLPNode(int id, String form, String posTag)
 	{
-		this(id, form, null, posTag, new FeatMap());
+		this(id, form, null, posTag, FeatMap.EMPTY);
 	}
 	
 	public AbstractNLPNode(int id, String form, String lemma, String posTag, FeatMap feats)
@@ -119,6 +137,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	
 	public void set(int id, String form, String lemma, String posTag, String namentTag, FeatMap feats, N dhead, String deprel)
 	{
+		token_feature_cache = null;
 		setID(id);
 		setWordForm(form);
 		setLemma(lemma);
@@ -128,13 +147,41 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 		setDependencyHead(dhead);
 		setDependencyLabel(deprel);
 		
-		dependent_list = new SortedArrayList<>();
-		semantic_heads = new ArrayList<>();
+		dependent_list = emptyDependents();
+		left_dependent_size = 0;
+		semantic_heads = Collections.emptyList();
+	}
+	
+	/**
+	 * Clears the dependencies, lexica, and offsets of this node without updating any other node
+	 * so that this node can be reused by {@link #set}; used only when its whole sentence is discarded (see {@link NodePool}).
+	 */
+	public void reset()
+	{
+		dependency_head         = null;
+		dependency_label        = null;
+		dependent_list          = emptyDependents();
+		left_dependent_size     = 0;
+		dependent_id            = 0;
+		semantic_heads          = Collections.emptyList();
+		tree_index              = null;
+		token_feature_cache     = null;
+		start_offset            = 0;
+		end_offset              = 0;
+		named_entity_gazetteers = null;
+		ambiguity_classes       = null;
+		word_clusters           = null;
+		word_embedding          = null;
+		stop_word               = false;
+		word_embedding_table    = null;
+		word_embedding_row      = 0;
+		word_cluster_lexicon    = null;
+		word_cluster_row        = 0;
 	}
 	
 	public void toRoot()
 	{
-		set(0, ROOT_TAG, ROOT_TAG, ROOT_TAG, ROOT_TAG, new FeatMap(), null, null);
+		set(0, ROOT_TAG, ROOT_TAG, ROOT_TAG, ROOT_TAG, FeatMap.EMPTY, null, null);
 	}
 	
 //	============================== GETTERS ==============================
@@ -195,8 +242,10 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 		return nament_tag;
 	}
 	
+	/** @return the feature map of this node, which is allocated if this node shares {@link FeatMap#EMPTY}. */
 	public FeatMap getFeatMap()
 	{
+		if (feat_map == FeatMap.EMPTY) feat_map = new FeatMap();
 		return feat_map;
 	}
 	
@@ -229,14 +278,56 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	
 	public Set<String> getWordClusters()
 	{
+		if (word_clusters == null && word_cluster_lexicon != null)
+			return word_cluster_lexicon.getPrefixes(word_cluster_row);
+		
 		return word_clusters;
 	}
 	
+	/** @return the lexicon providing the word clusters of this node if exists; otherwise, null. */
+	public WordClusterLexicon getWordClusterLexicon()
+	{
+		return word_cluster_lexicon;
+	}
+	
+	/** @return the prefix ids of the word clusters in {@link #getWordClusterLexicon()} if exists; otherwise, null. */
+	public int[] getWordClusterIds()
+	{
+		return (word_cluster_lexicon != null) ? word_cluster_lexicon.getPrefixIds(word_cluster_row) : null;
+	}
+	
 	public float[] getWordEmbedding()
 	{
+		if (word_embedding == null && word_embedding_table != null)
+			return word_embedding_table.get(word_embedding_row);
+		
 		return word_embedding;
 	}
 	
+	public int getWordEmbeddingSize()
+	{
+		if (word_embedding != null) return word_embedding.length;
+		return (word_embedding_table != null) ? word_embedding_table.getDimension() : 0;
+	}
+	
+	/** Copies the word embedding of this node to {@code dest[offset:offset+getWordEmbeddingSize()]}. */
+	public void copyWordEmbedding(float[] dest, int offset)
+	{
+		if (word_embedding != null)
+			System.arraycopy(word_embedding, 0, dest, offset, word_embedding.length);
+		else if (word_embedding_table != null)
+			word_embedding_table.copy(word_embedding_row, dest, offset);
+	}
+	
+	/** Adds the word embedding of this node to {@code dest}. */
+	public void addWordEmbedding(float[] dest)
+	{
+		if (word_embedding != null)
+			MathUtils.add(dest, word_embedding);
+		else if (word_embedding_table != null)
+			word_embedding_table.add(word_embedding_row, dest);
+	}
+	
 	public String getAmbiguityClass(int index)
 	{
 		return ambiguity_classes != null && DSUtils.isRange(ambiguity_classes, index) ? ambiguity_classes.get(index) : null;
@@ -287,6 +378,8 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	public void setID(int id)
 	{
 		this.id = id;
+		if (dependent_list  != null) resetDependentIDs();
+		if (dependency_head != null) dependency_head.resetDependentIDs();
 	}
 	
 	public void setWordForm(String form)
@@ -320,12 +413,12 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 
 	public void setFeatMap(FeatMap map)
 	{
-		feat_map = map;
+		feat_map = (map != null) ? map : FeatMap.EMPTY;
 	}
 	
 	public String putFeat(String key, String value)
 	{
-		return feat_map.put(key, value);
+		return getFeatMap().put(key, value);
 	}
 	
 	public String removeFeat(String key)
@@ -346,11 +439,29 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	public void setWordClusters(Set<String> clusters)
 	{
 		word_clusters = clusters;
+		word_cluster_lexicon = null;
+	}
+	
+	/** Sets the word clusters to the row of the lexicon; a negative row clears the word clusters. */
+	public void setWordClusters(WordClusterLexicon lexicon, int row)
+	{
+		word_clusters = null;
+		word_cluster_lexicon = (row < 0) ? null : lexicon;
+		word_cluster_row = row;
 	}
 	
 	public void setWordEmbedding(float[] embedding)
 	{
 		word_embedding = embedding;
+		word_embedding_table = null;
+	}
+	
+	/** Sets the word embedding to the row of the table; a negative row clears the embedding. */
+	public void setWordEmbedding(WordEmbeddingTable table, int row)
+	{
+		word_embedding = null;
+		word_embedding_table = (row < 0) ? null : table;
+		word_embedding_row = row;
 	}
 	
 	public void setNamedEntityGazetteers(Set<String> gazetteers)
@@ -410,12 +521,12 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	
 	public boolean hasWordClusters()
 	{
-		return word_clusters != null;
+		return word_clusters != null || word_cluster_lexicon != null;
 	}
 	
 	public boolean hasWordEmbedding()
 	{
-		return word_embedding != null;
+		return word_embedding != null || word_embedding_table != null;
 	}
 	
 //	============================== DEPENDENCY GETTERS ==============================
@@ -463,7 +574,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	 */
 	public N getLeftNearestDependent(int order)
 	{
-		int index = dependent_list.getInsertIndex(self()) - order - 1;
+		int index = left_dependent_size - order - 1;
 		return (index >= 0) ? getDependent(index) : null;
 	}
 	
@@ -485,7 +596,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	 */
 	public N getRightNearestDependent(int order)
 	{
-		int index = dependent_list.getInsertIndex(self()) + order;
+		int index = left_dependent_size + order;
 		return (index < getDependentSize()) ? getDependent(index) : null;
 	}
 	
@@ -507,13 +618,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	 */
 	public N getLeftMostDependent(int order)
 	{
-		if (DSUtils.isRange(dependent_list, order))
-		{
-			N dep = getDependent(order);
-			if (dep.id < id) return dep;
-		}
-
-		return null;
+		return (0 <= order && order < left_dependent_size) ? getDependent(order) : null;
 	}
 	
 	/** 
@@ -535,14 +640,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	public N getRightMostDependent(int order)
 	{
 		order = getDependentSize() - 1 - order;
-		
-		if (DSUtils.isRange(dependent_list, order))
-		{
-			N dep = getDependent(order);
-			if (dep.id > id) return dep;
-		}
-
-		return null;
+		return (left_dependent_size <= order && order < getDependentSize()) ? getDependent(order) : null;
 	}
 	
 	/** Calls {@link #getLeftNearestSibling(int)}, where {@code order=0}. */
@@ -668,7 +766,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	 */
 	public List<N> getDependentList()
 	{
-		return dependent_list;
+		return dependent_list.isEmpty() ? Collections.emptyList() : dependent_list;
 	}
 	
 	/**
@@ -819,6 +917,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	 */
 	public List<N> getDescendantList(int height)
 	{
+		if (tree_index != null) return (height > 0) ? tree_index.getDescendantList(self(), height) : new ArrayList<>();
 		List<N> list = new ArrayList<>();
 	
 		if (height > 0)
@@ -867,6 +966,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	  */
 	public List<N> getSubNodeList()
 	{
+		if (tree_index != null) return tree_index.getSubNodeList(self());
 		List<N> list = new ArrayList<>();
 		getSubNodeCollectionAux(list, self());
 		Collections.sort(list);
@@ -917,6 +1017,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	 */
 	public int[] getSubNodeIDSortedArray()
 	{
+		if (tree_index != null) return tree_index.getSubNodeIDSortedArray(self());
 		IntSet set = getSubNodeIDSet();
 		int[] list = set.toIntArray();
 		Arrays.sort(list);
@@ -1151,6 +1252,12 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 		return build.length() == 0 ? null : build.toString();
 	}
 	
+	/** @return the index attached by {@link DependencyTreeIndex#attach(AbstractNLPNode[])} if the tree has not changed since; otherwise, {@code null}. */
+	public DependencyTreeIndex<N> getTreeIndex()
+	{
+		return tree_index;
+	}
+	
 	/**
 	 * Get a set of all the ancestor nodes of the node (ie. Parent node, Grandparent node, etc.).
 	 * @return set of all the ancestor nodes
@@ -1176,6 +1283,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	 */
 	public N getLowestCommonAncestor(N node)
 	{
+		if (tree_index != null && tree_index.contains(node)) return tree_index.getLowestCommonAncestor(self(), node);
 		Set<N> set = getAncestorSet();
 		set.add(self());
 		
@@ -1199,14 +1307,20 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	/** Sets the dependency head. */
 	public void setDependencyHead(N node)
 	{
+		if (tree_index != null) tree_index.detach();
+		if (node != null && node.tree_index != null) node.tree_index.detach();
+		
 		if (hasDependencyHead())
 		{
 			dependency_head.dependent_list.remove(self());
+			if (dependency_head.dependent_list.isEmpty()) dependency_head.dependent_list = emptyDependents();
 			dependency_head.resetDependentIDs();
 		}
 		
 		if (node != null)
 		{
+			// an empty list may be shared (e.g., by deserialization), so a new one is allocated
+			if (node.dependent_list.isEmpty()) node.dependent_list = new SortedArrayList<>(DEPENDENT_CAPACITY);
 			node.dependent_list.addItem(self());
 			node.resetDependentIDs();
 		}
@@ -1239,17 +1353,32 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	 */
 	public DEPArc<N> clearDependencies()
 	{
+		if (tree_index != null) tree_index.detach();
 		DEPArc<N> arc = new DEPArc<>(dependency_head, dependency_label);
 		dependency_head  = null;
 		dependency_label = null;
-		dependent_list.clear();
+		dependent_list = emptyDependents();
+		left_dependent_size = 0;
 		return arc;
 	}
 	
 	protected void resetDependentIDs()
 	{
+		N node;
+		left_dependent_size = 0;
+		
 		for (int i=0; i<dependent_list.size(); i++)
-			dependent_list.get(i).dependent_id = i;
+		{
+			node = dependent_list.get(i);
+			node.dependent_id = i;
+			if (node.id < id) left_dependent_size++;
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	static private <N extends AbstractNLPNode<N>>SortedArrayList<N> emptyDependents()
+	{
+		return EMPTY_DEPENDENTS;
 	}
 	
 //	============================== DEPENDENCY BOOLEANS ==============================
@@ -1325,6 +1454,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	/** @return true if the node is a descendant of the specific node. */
 	public boolean isDescendantOf(N node)
 	{
+		if (tree_index != null && tree_index.contains(node)) return tree_index.isDescendant(self(), node);
 		N head = getDependencyHead();
 		
 		while (head != null)
@@ -1439,6 +1569,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	/** @param arcs {@code Collection<DEPArc>} of the semantic heads. */
 	public void addSemanticHeads(Collection<DEPArc<N>> arcs)
 	{
+		if (semantic_heads.isEmpty()) semantic_heads = new ArrayList<>(arcs.size());
 		semantic_heads.addAll(arcs);
 	}
 	
@@ -1451,6 +1582,7 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	/** Adds a semantic arc to the node. */
 	public void addSemanticHead(DEPArc<N> arc)
 	{
+		if (semantic_heads.isEmpty()) semantic_heads = new ArrayList<>(2);
 		semantic_heads.add(arc);
 	}
 	
@@ -1495,8 +1627,8 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	/** Removes all semantic heads of the node. */
 	public List<DEPArc<N>> clearSemanticHeads()
 	{
-		List<DEPArc<N>> backup = semantic_heads.subList(0, semantic_heads.size());
-		semantic_heads.clear();
+		List<DEPArc<N>> backup = semantic_heads;
+		semantic_heads = Collections.emptyList();
 		return backup;
 	}
 	
@@ -1576,6 +1708,44 @@ public abstract class AbstractNLPNode<N extends AbstractNLPNode<N>> implements S
 	
 //	============================== HELPERS ==============================
 	
+	/** Writes the rows of the word cluster lexicon and the word embedding table as {@link #word_clusters} and {@link #word_embedding} since neither is serialized. */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		WordClusterLexicon lexicon = word_cluster_lexicon;
+		WordEmbeddingTable table = word_embedding_table;
+	
+		if (word_clusters == null && lexicon != null)
+		{
+			word_clusters = lexicon.getPrefixes(word_cluster_row);
+			word_cluster_lexicon = null;
+		}
+	
+		if (word_embedding == null && table != null)
+		{
+			word_embedding = table.get(word_embedding_row);
+			word_embedding_table = null;
+		}
+	
+		try
+		{
+			out.defaultWriteObject();
+		}
+		finally
+		{
+			if (lexicon != null)
+			{
+				word_clusters = null;
+				word_cluster_lexicon = lexicon;
+			}
+			
+			if (table != null)
+			{
+				word_embedding = null;
+				word_embedding_table = table;
+			}
+		}
+	}
+	
 	@Override
 	public int compareTo(N node)
 	{
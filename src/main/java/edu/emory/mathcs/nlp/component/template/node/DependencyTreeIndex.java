@@ -0,0 +1,233 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Immutable index over the dependency tree of a sentence, where {@code nodes[i].getID() == i}.
+ * Subtrees are intervals of the preorder (Euler tour) so that subtree membership is a constant-time check,
+ * and the lowest common ancestor is found by binary lifting in logarithmic time.
+ * The index is detached from the nodes as soon as any head in the sentence changes.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DependencyTreeIndex<N extends AbstractNLPNode<N>>
+{
+	private N[]     nodes;
+	private int[]   order;		// preorder position -> node id
+	private int[]   begin;		// node id -> preorder position
+	private int[]   end;		// node id -> preorder position after its last descendant
+	private int[]   depth;		// node id -> distance from the root of its tree
+	private int[][] ancestors;	// ancestors[k][i]: the 2^k'th ancestor of node i, or -1
+	
+	private DependencyTreeIndex(N[] nodes)
+	{
+		int size = nodes.length;
+		this.nodes = nodes;
+		order = new int[size];
+		begin = new int[size];
+		end   = new int[size];
+		depth = new int[size];
+		Arrays.fill(begin, -1);
+		
+		int position = 0;
+		
+		for (int i=0; i<size; i++)
+		{
+			if (!nodes[i].hasDependencyHead())
+				position = visit(i, position);
+		}
+		
+		// nodes on a cycle are not reachable from any root
+		for (int i=0; i<size; i++)
+		{
+			if (begin[i] < 0)
+				position = visit(i, position);
+		}
+		
+		initAncestors();
+	}
+	
+	/** Builds the index from the current heads of the nodes and attaches it to the nodes. */
+	static public <N extends AbstractNLPNode<N>>DependencyTreeIndex<N> attach(N[] nodes)
+	{
+		DependencyTreeIndex<N> index = new DependencyTreeIndex<>(nodes);
+		for (N node : nodes) node.tree_index = index;
+		return index;
+	}
+	
+	/** Detaches this index from the nodes. */
+	public void detach()
+	{
+		for (N node : nodes)
+			if (node.tree_index == this) node.tree_index = null;
+	}
+	
+	/** Assigns preorder positions to the subtree of the node without recursion. @return the next position. */
+	private int visit(int root, int position)
+	{
+		IntArrayList stack = new IntArrayList();
+		List<N> dependents;
+		int i, d;
+		
+		stack.push(root);
+		depth[root] = 0;
+		
+		while (!stack.isEmpty())
+		{
+			i = stack.popInt();
+			
+			if (i < 0)
+			{
+				end[~i] = position;
+				continue;
+			}
+			
+			if (begin[i] >= 0) continue;
+			order[position] = i;
+			begin[i] = position++;
+			stack.push(~i);
+			dependents = nodes[i].getDependentList();
+			
+			for (int k=dependents.size()-1; k>=0; k--)
+			{
+				d = dependents.get(k).getID();
+				
+				if (begin[d] < 0)
+				{
+					depth[d] = depth[i] + 1;
+					stack.push(d);
+				}
+			}
+		}
+		
+		return position;
+	}
+	
+	private void initAncestors()
+	{
+		int i, k, size = nodes.length, log = 32 - Integer.numberOfLeadingZeros(size);
+		ancestors = new int[Math.max(1, log)][size];
+		N head;
+		
+		for (i=0; i<size; i++)
+		{
+			head = nodes[i].getDependencyHead();
+			ancestors[0][i] = (head != null) ? head.getID() : -1;
+		}
+		
+		for (k=1; k<ancestors.length; k++)
+		{
+			for (i=0; i<size; i++)
+			{
+				int a = ancestors[k-1][i];
+				ancestors[k][i] = (a < 0) ? -1 : ancestors[k-1][a];
+			}
+		}
+	}
+
+//	=================================== QUERIES ===================================
+	
+	/** @return {@code true} if the node belongs to the sentence of this index. */
+	public boolean contains(N node)
+	{
+		return node != null && node.tree_index == this;
+	}
+	
+	/** @return {@code true} if the node is in the subtree of the ancestor, including the ancestor itself. */
+	public boolean isSubNode(N node, N ancestor)
+	{
+		return isSubNode(node.getID(), ancestor.getID());
+	}
+	
+	private boolean isSubNode(int node, int ancestor)
+	{
+		return begin[ancestor] <= begin[node] && begin[node] < end[ancestor];
+	}
+	
+	/** @return {@code true} if the node is a descendant of the ancestor. */
+	public boolean isDescendant(N node, N ancestor)
+	{
+		return node != ancestor && isSubNode(node, ancestor);
+	}
+	
+	/** @return the lowest common ancestor of the two nodes, including themselves, if exists; otherwise, {@code null}. */
+	public N getLowestCommonAncestor(N node1, N node2)
+	{
+		int a = node1.getID(), b = node2.getID(), k;
+		if (isSubNode(b, a)) return node1;
+		if (isSubNode(a, b)) return node2;
+		
+		for (k=ancestors.length-1; k>=0; k--)
+		{
+			int u = ancestors[k][a];
+			if (u >= 0 && !isSubNode(b, u)) a = u;
+		}
+		
+		a = ancestors[0][a];
+		return (a >= 0 && isSubNode(b, a)) ? nodes[a] : null;
+	}
+	
+	/** @return the distance from the node to the root of its tree. */
+	public int getDepth(N node)
+	{
+		return depth[node.getID()];
+	}
+	
+	/** @return the number of nodes in the subtree of the node, including the node itself. */
+	public int getSubNodeSize(N node)
+	{
+		int i = node.getID();
+		return end[i] - begin[i];
+	}
+	
+	/** @return the sorted IDs of the nodes in the subtree of the node, including the node itself. */
+	public int[] getSubNodeIDSortedArray(N node)
+	{
+		int i = node.getID();
+		int[] ids = Arrays.copyOfRange(order, begin[i], end[i]);
+		Arrays.sort(ids);
+		return ids;
+	}
+	
+	/** @return the sorted list of the nodes in the subtree of the node, including the node itself. */
+	public List<N> getSubNodeList(N node)
+	{
+		int[] ids = getSubNodeIDSortedArray(node);
+		List<N> list = new ArrayList<>(ids.length);
+		for (int id : ids) list.add(nodes[id]);
+		return list;
+	}
+	
+	/** @return the descendants of the node within the height in preorder. */
+	public List<N> getDescendantList(N node, int height)
+	{
+		int i = node.getID(), max = depth[i] + height;
+		List<N> list = new ArrayList<>();
+		
+		for (int p=begin[i]+1; p<end[i]; p++)
+		{
+			int d = order[p];
+			if (depth[d] <= max) list.add(nodes[d]);
+		}
+		
+		return list;
+	}
+}
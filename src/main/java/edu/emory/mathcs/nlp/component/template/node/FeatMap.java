@@ -15,25 +15,45 @@
  */
 package edu.emory.mathcs.nlp.component.template.node;
 
-import java.util.HashMap;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import edu.emory.mathcs.nlp.common.util.Splitter;
 import edu.emory.mathcs.nlp.component.template.reader.TSVReader;
 
 
 /**
+ * Features are kept in insertion order as key-value pairs in one array, and moved to a hash map only when there are more than {@link #ARRAY_SIZE} of them.
+ * The string given to {@link #FeatMap(String)} is not parsed until the features are accessed,
+ * which is synchronized so that the map can be read by multiple threads; modifications are not synchronized.
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
  */
-public class FeatMap extends HashMap<String,String>
+public class FeatMap extends AbstractMap<String,String> implements Serializable
 {
-	private static final long serialVersionUID = 4093725541292286982L;
+	private static final long serialVersionUID = -2207418237826432419L;
 	/** The delimiter between feature values ({@code ","}). */
 	public static final String DELIM_VALUES    = ",";
 	/** The delimiter between features ({@code "|"}). */
 	public static final String DELIM_FEATS     = "|";
 	/** The delimiter between keys and values ({@code "="}). */
 	public static final String DELIM_KEY_VALUE = "=";
-
+	/** The shared map with no feature, which cannot be modified. */
+	public static final FeatMap EMPTY = new FeatMap();
+	/** The maximum number of features kept in the array. */
+	static private final int ARRAY_SIZE = 8;
+	
+	private String[]            entries;	// key_0, value_0, key_1, value_1, ...
+	private int                 size;
+	private Map<String,String>  map;		// used instead of the array when there are more than ARRAY_SIZE features
+	private volatile String     feats;		// not parsed yet; set to null only after the parsed features are assigned
+	
 	public FeatMap()
 	{
 		super();
@@ -42,7 +62,13 @@ public class FeatMap extends HashMap<String,String>
 	public FeatMap(String feats)
 	{
 		super();
-		add(feats);
+		if (feats != null && !TSVReader.BLANK.equals(feats)) this.feats = feats;
+	}
+	
+	/** @return {@link #EMPTY} if the features are {@code null} or {@code "_"}; otherwise, a new map of the features. */
+	static public FeatMap create(String feats)
+	{
+		return (feats == null || TSVReader.BLANK.equals(feats)) ? EMPTY : new FeatMap(feats);
 	}
 	
 	/**
@@ -65,11 +91,212 @@ public class FeatMap extends HashMap<String,String>
 			{
 				key   = feat.substring(0, idx);
 				value = feat.substring(idx+1);
-				put(key, value);				
+				put(key, value);
 			}
 		}
 	}
+	
+	/** Parses the features into a separate map so that no other thread sees them partially parsed. */
+	private void parse()
+	{
+		if (feats == null) return;
+		
+		synchronized (this)
+		{
+			if (feats == null) return;
+			FeatMap m = new FeatMap();
+			m.add(feats);
+			entries = m.entries;
+			size    = m.size;
+			map     = m.map;
+			feats   = null;
+		}
+	}
+	
+	private void checkModifiable()
+	{
+		if (this == EMPTY) throw new UnsupportedOperationException("The empty feature map cannot be modified.");
+	}
 
+//	============================== MAP ==============================
+	
+	@Override
+	public int size()
+	{
+		parse();
+		return (map != null) ? map.size() : size;
+	}
+	
+	@Override
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+	
+	@Override
+	public boolean containsKey(Object key)
+	{
+		parse();
+		return (map != null) ? map.containsKey(key) : indexOf(key) >= 0;
+	}
+	
+	@Override
+	public String get(Object key)
+	{
+		parse();
+		if (map != null) return map.get(key);
+		int i = indexOf(key);
+		return (i >= 0) ? entries[i+1] : null;
+	}
+	
+	@Override
+	public String put(String key, String value)
+	{
+		checkModifiable();
+		parse();
+		if (map != null) return map.put(key, value);
+		int i = indexOf(key);
+		
+		if (i >= 0)
+		{
+			String old = entries[i+1];
+			entries[i+1] = value;
+			return old;
+		}
+		
+		if (size == ARRAY_SIZE)
+		{
+			map = new LinkedHashMap<>();
+			for (i=0; i<size*2; i+=2) map.put(entries[i], entries[i+1]);
+			map.put(key, value);
+			entries = null;
+			size = 0;
+			return null;
+		}
+		
+		if (entries == null) entries = new String[4];
+		else if (entries.length == size*2) entries = Arrays.copyOf(entries, entries.length*2);
+		entries[size*2]   = key;
+		entries[size*2+1] = value;
+		size++;
+		return null;
+	}
+	
+	@Override
+	public String remove(Object key)
+	{
+		parse();
+		if (map != null) return map.remove(key);
+		int i = indexOf(key);
+		if (i < 0) return null;
+		String old = entries[i+1];
+		removeAt(i);
+		return old;
+	}
+	
+	@Override
+	public void clear()
+	{
+		checkModifiable();
+		feats   = null;
+		map     = null;
+		entries = null;
+		size    = 0;
+	}
+	
+	/** @return the index of the key in {@link #entries} if exists; otherwise, -1. */
+	private int indexOf(Object key)
+	{
+		for (int i=0; i<size*2; i+=2)
+		{
+			if (entries[i].equals(key))
+				return i;
+		}
+		
+		return -1;
+	}
+	
+	private void removeAt(int i)
+	{
+		System.arraycopy(entries, i+2, entries, i, size*2-i-2);
+		size--;
+		entries[size*2] = entries[size*2+1] = null;
+	}
+	
+	@Override
+	public Set<Entry<String,String>> entrySet()
+	{
+		parse();
+		return (map != null) ? map.entrySet() : new ArrayEntrySet();
+	}
+	
+	private class ArrayEntrySet extends AbstractSet<Entry<String,String>>
+	{
+		@Override
+		public int size()
+		{
+			return FeatMap.this.size();
+		}
+		
+		@Override
+		public Iterator<Entry<String,String>> iterator()
+		{
+			return new Iterator<Entry<String,String>>()
+			{
+				int next = 0, last = -1;
+				
+				@Override
+				public boolean hasNext()
+				{
+					return next < size*2;
+				}
+				
+				@Override
+				public Entry<String,String> next()
+				{
+					if (!hasNext()) throw new NoSuchElementException();
+					last  = next;
+					next += 2;
+					return new ArrayEntry(last);
+				}
+				
+				@Override
+				public void remove()
+				{
+					if (last < 0) throw new IllegalStateException();
+					removeAt(last);
+					next = last;
+					last = -1;
+				}
+			};
+		}
+	}
+	
+	private class ArrayEntry extends SimpleEntry<String,String>
+	{
+		private static final long serialVersionUID = -1526472731540924811L;
+		private int index;
+		
+		public ArrayEntry(int index)
+		{
+			super(entries[index], entries[index+1]);
+			this.index = index;
+		}
+		
+		@Override
+		public String setValue(String value)
+		{
+			entries[index+1] = value;
+			return super.setValue(value);
+		}
+	}
+	
+	/** Keeps the deserialized empty map shared. */
+	private Object readResolve()
+	{
+		return (feats == null && map == null && size == 0) ? EMPTY : this;
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -86,4 +313,4 @@ public class FeatMap extends HashMap<String,String>
 		
 		return build.toString().substring(DELIM_FEATS.length());
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.node;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+/**
+ * Bounded pool of released nodes and node arrays; this class is not thread-safe, so each thread needs its own pool.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class NodePool<N extends AbstractNLPNode<N>>
+{
+	private ArrayDeque<N>                 nodes;
+	private Int2ObjectMap<ArrayDeque<N[]>> arrays;	// array length -> arrays
+	private int max_nodes;
+	private int max_arrays;
+	
+	/**
+	 * @param maxNodes the maximum number of nodes kept in this pool.
+	 * @param maxArrays the maximum number of arrays kept for each length.
+	 */
+	public NodePool(int maxNodes, int maxArrays)
+	{
+		nodes  = new ArrayDeque<>();
+		arrays = new Int2ObjectOpenHashMap<>();
+		max_nodes  = maxNodes;
+		max_arrays = maxArrays;
+	}
+	
+	/** @return a released node if exists; otherwise, {@code null}. */
+	public N getNode()
+	{
+		return nodes.pollLast();
+	}
+	
+	/** @return a released array of the specific length if exists; otherwise, {@code null}. */
+	public N[] getArray(int length)
+	{
+		ArrayDeque<N[]> deque = arrays.get(length);
+		return (deque != null) ? deque.pollLast() : null;
+	}
+	
+	/**
+	 * Resets the nodes by {@link AbstractNLPNode#reset()} and keeps them as well as the array.
+	 * The nodes must not be used by the caller after this call.
+	 */
+	public void release(N[] array)
+	{
+		for (N node : array)
+		{
+			if (node == null) continue;
+			node.reset();
+			if (nodes.size() < max_nodes) nodes.addLast(node);
+		}
+		
+		ArrayDeque<N[]> deque = arrays.get(array.length);
+		
+		if (deque == null)
+		{
+			deque = new ArrayDeque<>();
+			arrays.put(array.length, deque);
+		}
+		
+		if (deque.size() < max_arrays)
+		{
+			Arrays.fill(array, null);
+			deque.addLast(array);
+		}
+	}
+	
+	/** @return the number of nodes in this pool. */
+	public int getNodeSize()
+	{
+		return nodes.size();
+	}
+	
+	public void clear()
+	{
+		nodes.clear();
+		arrays.clear();
+	}
+}
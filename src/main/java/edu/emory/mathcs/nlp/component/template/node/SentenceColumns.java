@@ -0,0 +1,254 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.node;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.emory.mathcs.nlp.component.template.feature.Field;
+import edu.emory.mathcs.nlp.component.template.feature.Relation;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Columnar view of a sentence, where {@code nodes[i].getID() == i}.
+ * Fields that no component changes while processing the sentence are coded as integers into a per-sentence vocabulary,
+ * one column per field built on its first access.
+ * If the dependency tree does not change either, the heads and the dependents are kept as index arrays for {@link Relation}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class SentenceColumns<N extends AbstractNLPNode<N>>
+{
+	static private final int NULL = -1, NONE = -2;
+	
+	private N[]                   nodes;
+	private int[][]               columns;		// field ordinal -> node id -> value code, NULL, or NONE if not computed
+	private String[]              values;		// value code -> value
+	private Object2IntMap<String> codes;		// value -> value code
+	
+	// null unless the tree is static
+	private int[] heads;			// node id -> head id or NULL
+	private int[] dependents;		// dependent ids grouped by heads in ascending order
+	private int[] begins;			// node id -> index of its first dependent in dependents; begins[nodes.length] = dependents.length
+	private int[] left_sizes;		// node id -> number of left dependents
+	private int[] dependent_ids;	// node id -> index among its siblings
+	
+	/** @param staticTree if {@code true}, {@link #getRelative(int, Relation)} is enabled; the heads must not change afterwards. */
+	public SentenceColumns(N[] nodes, boolean staticTree)
+	{
+		this.nodes = nodes;
+		columns = new int[Field.values().length][];
+		values  = new String[16];
+		codes   = new Object2IntOpenHashMap<>();
+		codes.defaultReturnValue(NULL);
+		if (staticTree) initTree();
+	}
+	
+	private void initTree()
+	{
+		int i, size = nodes.length, count = 0;
+		heads         = new int[size];
+		begins        = new int[size+1];
+		left_sizes    = new int[size];
+		dependent_ids = new int[size];
+		
+		for (i=0; i<size; i++)
+		{
+			N head = nodes[i].getDependencyHead();
+			heads[i] = (head != null) ? head.getID() : NULL;
+			begins[i] = count;
+			count += nodes[i].getDependentSize();
+		}
+		
+		begins[size] = count;
+		dependents = new int[count];
+		
+		for (i=0; i<size; i++)
+		{
+			List<N> list = nodes[i].getDependentList();
+			
+			for (int j=0; j<list.size(); j++)
+			{
+				int d = list.get(j).getID();
+				dependents[begins[i]+j] = d;
+				dependent_ids[d] = j;
+				if (d < i) left_sizes[i]++;
+			}
+		}
+	}
+
+//	=================================== FIELDS ===================================
+	
+	/** @return {@code true} if the field is kept in this view. */
+	static public boolean isColumnar(Field field)
+	{
+		switch (field)
+		{
+		case word_form:
+		case word_form_lowercase:
+		case word_form_simplified:
+		case word_form_undigitalized:
+		case word_form_simplified_lowercase:
+		case word_shape:
+		case word_shape_lowercase:
+		case lemma:
+		case ambiguity_classes:
+		case named_entity_gazetteers: return true;
+		default: return false;
+		}
+	}
+	
+	/** @return the code of the field value of the node if exists; otherwise, -1. The field must be {@link #isColumnar(Field)}. */
+	public int getCode(Field field, int id)
+	{
+		int[] column = columns[field.ordinal()];
+		
+		if (column == null)
+		{
+			column = new int[nodes.length];
+			Arrays.fill(column, NONE);
+			columns[field.ordinal()] = column;
+		}
+		
+		int code = column[id];
+		if (code == NONE) column[id] = code = encode(nodes[id].getValue(field));
+		return code;
+	}
+	
+	/** @return the field value of the node; the field must be {@link #isColumnar(Field)}. */
+	public String getValue(Field field, int id)
+	{
+		int code = getCode(field, id);
+		return (code < 0) ? null : values[code];
+	}
+	
+	/** @return the value of the code. */
+	public String getValue(int code)
+	{
+		return values[code];
+	}
+	
+	/** @return the number of distinct values coded so far. */
+	public int getValueSize()
+	{
+		return codes.size();
+	}
+	
+	private int encode(String value)
+	{
+		if (value == null) return NULL;
+		int code = codes.getInt(value);
+		
+		if (code == NULL)
+		{
+			code = codes.size();
+			codes.put(value, code);
+			if (code == values.length) values = Arrays.copyOf(values, code * 2);
+			values[code] = value;
+		}
+		
+		return code;
+	}
+
+//	=================================== RELATIONS ===================================
+	
+	/** @return {@code true} if the heads and the dependents are kept in this view. */
+	public boolean hasTree()
+	{
+		return heads != null;
+	}
+	
+	/** @return the ID of the relative node if exists; otherwise, -1. Requires {@link #hasTree()}. */
+	public int getRelative(int id, Relation relation)
+	{
+		switch (relation)
+		{
+		case h   : return heads[id];
+		case h2  : return (heads[id] < 0) ? NULL : heads[heads[id]];
+		case lmd : return getLeftMostDependent(id, 0);
+		case lmd2: return getLeftMostDependent(id, 1);
+		case lnd : return getLeftNearestDependent(id, 0);
+		case lnd2: return getLeftNearestDependent(id, 1);
+		case lns : return getLeftNearestSibling(id, 0);
+		case lns2: return getLeftNearestSibling(id, 1);
+		case rmd : return getRightMostDependent(id, 0);
+		case rmd2: return getRightMostDependent(id, 1);
+		case rnd : return getRightNearestDependent(id, 0);
+		case rnd2: return getRightNearestDependent(id, 1);
+		case rns : return getRightNearestSibling(id, 0);
+		case rns2: return getRightNearestSibling(id, 1);
+		}
+		
+		return NULL;
+	}
+	
+	/** @return {@code true} if the node belongs to the sentence of this view. */
+	public boolean contains(N node)
+	{
+		int id = node.getID();
+		return 0 <= id && id < nodes.length && nodes[id] == node;
+	}
+	
+	/** @return the node of the ID if the ID is not negative; otherwise, {@code null}. */
+	public N getNode(int id)
+	{
+		return (id < 0) ? null : nodes[id];
+	}
+	
+	private int getDependentSize(int id)
+	{
+		return begins[id+1] - begins[id];
+	}
+	
+	private int getLeftMostDependent(int id, int order)
+	{
+		return (order < left_sizes[id]) ? dependents[begins[id]+order] : NULL;
+	}
+	
+	private int getLeftNearestDependent(int id, int order)
+	{
+		int index = left_sizes[id] - order - 1;
+		return (index >= 0) ? dependents[begins[id]+index] : NULL;
+	}
+	
+	private int getRightMostDependent(int id, int order)
+	{
+		int index = getDependentSize(id) - 1 - order;
+		return (index >= left_sizes[id]) ? dependents[begins[id]+index] : NULL;
+	}
+	
+	private int getRightNearestDependent(int id, int order)
+	{
+		int index = left_sizes[id] + order;
+		return (index < getDependentSize(id)) ? dependents[begins[id]+index] : NULL;
+	}
+	
+	private int getLeftNearestSibling(int id, int order)
+	{
+		int head = heads[id];
+		if (head < 0) return NULL;
+		int index = dependent_ids[id] - order - 1;
+		return (index >= 0) ? dependents[begins[head]+index] : NULL;
+	}
+	
+	private int getRightNearestSibling(int id, int order)
+	{
+		int head = heads[id];
+		if (head < 0) return NULL;
+		int index = dependent_ids[id] + order + 1;
+		return (index < getDependentSize(head)) ? dependents[begins[head]+index] : NULL;
+	}
+}
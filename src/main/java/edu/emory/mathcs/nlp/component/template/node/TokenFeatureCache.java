@@ -0,0 +1,206 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.node;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import edu.emory.mathcs.nlp.component.template.feature.Field;
+import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+
+/**
+ * Token-level feature values of a sentence keyed by owner, field, and attribute, shared by every component that processes the sentence.
+ * The owner is the class of the feature template that extracts the values, which may override how they are extracted,
+ * so only components using the same class of feature templates share the values.
+ * Only fields whose values depend on nothing but the token and its position ({@link #isStatic(Field)}) are cached.
+ * The cache is attached to the nodes, where {@code nodes[i].getID() == i}, and a node is detached when it is {@link AbstractNLPNode#set reset}.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class TokenFeatureCache<N extends AbstractNLPNode<N>>
+{
+	/** Returned by {@link #get(AbstractNLPNode, Field, Object, boolean)} if the value is not cached. */
+	static public final Object MISSING = new Object();
+	static private final LongAdder TOTAL_HITS   = new LongAdder();
+	static private final LongAdder TOTAL_MISSES = new LongAdder();
+	
+	private N[]                                   nodes;
+	private Reference2ObjectMap<Object,Columns>   owners;		// owner -> columns
+	private Object                                last_owner;
+	private Columns                               last_columns;
+	private int hits;
+	private int misses;
+	
+	private TokenFeatureCache(N[] nodes)
+	{
+		this.nodes = nodes;
+		owners     = new Reference2ObjectOpenHashMap<>();
+	}
+	
+	/** @return the cache attached to the nodes if exists; otherwise, a new cache attached to the nodes. */
+	static public <N extends AbstractNLPNode<N>>TokenFeatureCache<N> attach(N[] nodes)
+	{
+		TokenFeatureCache<N> cache = nodes[0].token_feature_cache;
+		if (cache != null && cache.nodes == nodes) return cache;
+		cache = new TokenFeatureCache<>(nodes);
+		for (N node : nodes) node.token_feature_cache = cache;
+		return cache;
+	}
+	
+	/** @return {@code true} if the values of the field are cached. */
+	static public boolean isStatic(Field field)
+	{
+		switch (field)
+		{
+		case word_shape:
+		case word_shape_lowercase:
+		case prefix:
+		case suffix:
+		case orthographic:
+		case orthographic_lowercase:
+		case ambiguity_classes:
+		case named_entity_gazetteers: return true;
+		default: return false;
+		}
+	}
+	
+	/**
+	 * @param owner the class of the feature template extracting the value.
+	 * @param set if {@code true}, the value is a collection of features; otherwise, a single feature.
+	 * @return the cached value, which can be {@code null}, if exists; otherwise, {@link #MISSING}.
+	 */
+	public Object get(N node, Object owner, Field field, Object attribute, boolean set)
+	{
+		Columns columns = contains(node) ? getColumns(owner, false) : null;
+		Object[] column = (columns != null) ? columns.get(key(field, set), attribute, false, nodes.length) : null;
+		Object value = (column != null) ? column[node.getID()] : MISSING;
+		
+		if (value == MISSING)
+		{
+			misses++;
+			TOTAL_MISSES.increment();
+		}
+		else
+		{
+			hits++;
+			TOTAL_HITS.increment();
+		}
+		
+		return value;
+	}
+	
+	/** Caches the value of the node if the node is attached to this cache. */
+	public void put(N node, Object owner, Field field, Object attribute, boolean set, Object value)
+	{
+		if (contains(node)) getColumns(owner, true).get(key(field, set), attribute, true, nodes.length)[node.getID()] = value;
+	}
+	
+	static private int key(Field field, boolean set)
+	{
+		return set ? Columns.SIZE / 2 + field.ordinal() : field.ordinal();
+	}
+	
+	private Columns getColumns(Object owner, boolean create)
+	{
+		if (owner == last_owner) return last_columns;
+		Columns columns = owners.get(owner);
+		if (columns == null && !create) return null;
+		if (columns == null) owners.put(owner, columns = new Columns());
+		last_owner   = owner;
+		last_columns = columns;
+		return columns;
+	}
+	
+	static private class Columns
+	{
+		static final int SIZE = Field.values().length * 2;
+		Object[][]                          values;		// key -> node id -> value
+		Object2ObjectMap<Object,Object[]>[] attributes;	// key -> attribute -> node id -> value
+		
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Columns()
+		{
+			values     = new Object[SIZE][];
+			attributes = new Object2ObjectMap[SIZE];
+		}
+		
+		Object[] get(int f, Object attribute, boolean create, int size)
+		{
+			Object[] column;
+			
+			if (attribute == null)
+			{
+				column = values[f];
+				if (column == null && create) values[f] = column = newColumn(size);
+			}
+			else
+			{
+				Object2ObjectMap<Object,Object[]> map = attributes[f];
+				if (map == null && create) attributes[f] = map = new Object2ObjectOpenHashMap<>();
+				column = (map != null) ? map.get(attribute) : null;
+				if (column == null && create) map.put(attribute, column = newColumn(size));
+			}
+			
+			return column;
+		}
+		
+		static private Object[] newColumn(int size)
+		{
+			Object[] column = new Object[size];
+			Arrays.fill(column, MISSING);
+			return column;
+		}
+	}
+	
+	/** @return {@code true} if the node is attached to this cache. */
+	public boolean contains(N node)
+	{
+		int id = node.getID();
+		return node.token_feature_cache == this && 0 <= id && id < nodes.length && nodes[id] == node;
+	}
+
+//	=================================== COUNTERS ===================================
+	
+	public int getHitCount()
+	{
+		return hits;
+	}
+	
+	public int getMissCount()
+	{
+		return misses;
+	}
+	
+	/** @return the number of hits across all caches. */
+	static public long getTotalHitCount()
+	{
+		return TOTAL_HITS.sum();
+	}
+	
+	/** @return the number of misses across all caches. */
+	static public long getTotalMissCount()
+	{
+		return TOTAL_MISSES.sum();
+	}
+	
+	static public void resetTotalCounts()
+	{
+		TOTAL_HITS.reset();
+		TOTAL_MISSES.reset();
+	}
+}
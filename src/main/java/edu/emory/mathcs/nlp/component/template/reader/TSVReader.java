@@ -27,6 +27,8 @@ import edu.emory.mathcs.nlp.common.util.IOUtils;
 import edu.emory.mathcs.nlp.common.util.Splitter;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 import edu.emory.mathcs.nlp.component.template.node.FeatMap;
+import edu.emory.mathcs.nlp.component.template.node.NodePool;
+import edu.emory.mathcs.nlp.learning.util.StringPool;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 
 /**
@@ -46,6 +48,16 @@ public abstract class TSVReader<N extends AbstractNLPNode<N>>
 	public int deprel = -1;
 	public int sheads = -1;
 	
+	// pools that share the instances of repeated values; null disables pooling of the field
+	// lemmas are open-vocabulary, so they are pooled only if a pool is given to this reader
+	public StringPool lemma_pool  = null;
+	public StringPool pos_pool    = StringPool.LABELS;
+	public StringPool nament_pool = StringPool.LABELS;
+	public StringPool deprel_pool = StringPool.LABELS;
+	
+	// per-thread pools of released sentences; null unless recycling is enabled
+	private ThreadLocal<NodePool<N>> node_pool;
+	
 	public TSVReader() {}
 	
 	public TSVReader(int form, int lemma, int pos, int feats, int dhead, int deprel, int sheads, int nament)
@@ -98,6 +110,29 @@ public abstract class TSVReader<N extends AbstractNLPNode<N>>
 		return document;
 	}
 	
+	/**
+	 * Enables or disables recycling, in which {@link #toNodeList(List)} reuses the nodes and arrays given to {@link #release(AbstractNLPNode[])}.
+	 * @param maxNodes the maximum number of nodes kept per thread.
+	 */
+	public void setRecycle(boolean recycle, int maxNodes)
+	{
+		node_pool = recycle ? ThreadLocal.withInitial(() -> new NodePool<>(maxNodes, 4)) : null;
+	}
+	
+	public boolean isRecycle()
+	{
+		return node_pool != null;
+	}
+	
+	/**
+	 * Gives the nodes back to the pool of the current thread if recycling is enabled.
+	 * Neither the array nor its nodes must be used by the caller after this call.
+	 */
+	public void release(N[] nodes)
+	{
+		if (node_pool != null) node_pool.get().release(nodes);
+	}
+	
 	public N[] next() throws IOException
 	{
 		List<String[]> list = new ArrayList<>();
@@ -123,8 +158,9 @@ public abstract class TSVReader<N extends AbstractNLPNode<N>>
 	public N[] toNodeList(List<String[]> list)
 	{
 		int i, size = list.size();
-		N node = create();
-		N[] nodes = (N[])Array.newInstance(node.getClass(), size+1);
+		N node = recycle();
+		N[] nodes = (node_pool != null) ? node_pool.get().getArray(size+1) : null;
+		if (nodes == null) nodes = (N[])Array.newInstance(node.getClass(), size+1);
 		
 		node.toRoot();
 		nodes[0] = node;
@@ -150,18 +186,31 @@ public abstract class TSVReader<N extends AbstractNLPNode<N>>
 	protected N create(int id, String[] values)
 	{
 		String  f = (form   >= 0) ? values[form]   : null;
-		String  l = (lemma  >= 0) ? values[lemma]  : null;
-		String  p = (pos    >= 0) ? values[pos]    : null;
-		String  n = (nament >= 0) ? values[nament] : null;
-		FeatMap t = (feats  >= 0) ? new FeatMap(values[feats]) : new FeatMap();
+		String  l = (lemma  >= 0) ? get(lemma_pool , values[lemma])  : null;
+		String  p = (pos    >= 0) ? get(pos_pool   , values[pos])    : null;
+		String  n = (nament >= 0) ? get(nament_pool, values[nament]) : null;
+		FeatMap t = (feats  >= 0) ? FeatMap.create(values[feats]) : FeatMap.EMPTY;
 		
-		N node = create();
+		N node = recycle();
 		node.set(id, f, l, p, n, t, null, null);
 		return node;
 	}
 	
 	protected abstract N create();
 	
+	/** @return a released node if recycling is enabled and the pool of the current thread has one; otherwise, a new node. */
+	protected N recycle()
+	{
+		N node = (node_pool != null) ? node_pool.get().getNode() : null;
+		return (node != null) ? node : create();
+	}
+	
+	/** @return the pooled instance of the value if the pool is not null; otherwise, the value. */
+	static protected String get(StringPool pool, String value)
+	{
+		return (pool != null) ? pool.get(value) : value;
+	}
+	
 	protected String getValue(String[] values, int index, boolean tag)
 	{
 		if (index < 0 || values.length <= index) return null;
@@ -173,7 +222,7 @@ public abstract class TSVReader<N extends AbstractNLPNode<N>>
 	{
 		if (BLANK.equals(values[dhead])) return;
 		int headID = Integer.parseInt(values[dhead]);
-		nodes[id].setDependencyHead(nodes[headID], values[deprel]);
+		nodes[id].setDependencyHead(nodes[headID], get(deprel_pool, values[deprel]));
 	}
 	
 	protected void initSemanticHeads(int id, String value, N[] nodes)
@@ -187,7 +236,7 @@ public abstract class TSVReader<N extends AbstractNLPNode<N>>
 		{
 			t = Splitter.splitColons(arg);
 			headID = Integer.parseInt(t[0]);
-			node.addSemanticHead(nodes[headID], t[1]);
+			node.addSemanticHead(nodes[headID], get(deprel_pool, t[1]));
 		}			
 	}
 }
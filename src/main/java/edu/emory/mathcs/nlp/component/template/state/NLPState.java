@@ -22,8 +22,11 @@ import edu.emory.mathcs.nlp.component.template.eval.Eval;
 import edu.emory.mathcs.nlp.component.template.eval.F1Eval;
 import edu.emory.mathcs.nlp.component.template.feature.FeatureItem;
 import edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate;
+import edu.emory.mathcs.nlp.component.template.feature.Field;
 import edu.emory.mathcs.nlp.component.template.feature.Relation;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
+import edu.emory.mathcs.nlp.component.template.node.SentenceColumns;
+import edu.emory.mathcs.nlp.component.template.node.TokenFeatureCache;
 import edu.emory.mathcs.nlp.learning.util.LabelMap;
 
 /**
@@ -34,6 +37,8 @@ public abstract class NLPState<N extends AbstractNLPNode<N>>
 {
 	protected List<N[]> document;
 	protected N[] nodes;
+	protected SentenceColumns<N> columns;	// null unless initColumns() is called
+	protected TokenFeatureCache<N> feature_cache;	// null unless initFeatureCache() is called
 
 	/**
 	 * For sentence-based NLP components.
@@ -62,6 +67,12 @@ public abstract class NLPState<N extends AbstractNLPNode<N>>
 	/** @return the gold label given the current state. */
 	public abstract String getOracle();
 	
+	/** @return the index of the gold label given the current state, where the label is added to the map if not exists. */
+	public int getOracle(LabelMap map)
+	{
+		return map.add(getOracle());
+	}
+	
 	/** Resets the oracle with gold information. */
 	public abstract void resetOracle();
 	
@@ -98,6 +109,37 @@ public abstract class NLPState<N extends AbstractNLPNode<N>>
 		this.nodes = nodes;
 	}
 	
+	/**
+	 * Builds the columnar view of {@link #nodes} read by {@link #getValue(AbstractNLPNode, Field)} and {@link #getRelativeNode(AbstractNLPNode, Relation)}.
+	 * States that change the dependency tree must override this to leave the tree out of the view.
+	 */
+	public void initColumns()
+	{
+		if (nodes != null) columns = new SentenceColumns<>(nodes, true);
+	}
+	
+	public SentenceColumns<N> getColumns()
+	{
+		return columns;
+	}
+	
+	/** Attaches the token feature cache of {@link #nodes}, which is shared with other components processing the same nodes. */
+	public void initFeatureCache()
+	{
+		if (nodes != null) feature_cache = TokenFeatureCache.attach(nodes);
+	}
+	
+	public TokenFeatureCache<N> getFeatureCache()
+	{
+		return feature_cache;
+	}
+	
+	/** @return the value of the field of the node, read from the columnar view if possible. */
+	public String getValue(N node, Field field)
+	{
+		return (columns != null && SentenceColumns.isColumnar(field) && columns.contains(node)) ? columns.getValue(field, node.getID()) : node.getValue(field);
+	}
+	
 	public List<N[]> getDocument()
 	{
 		return document;
@@ -142,6 +184,9 @@ public abstract class NLPState<N extends AbstractNLPNode<N>>
 		if (node == null || relation == null)
 			return node;
 		
+		if (columns != null && columns.hasTree() && columns.contains(node))
+			return columns.getNode(columns.getRelative(node.getID(), relation));
+		
 		switch (relation)
 		{
 		case h   : return node.getDependencyHead();
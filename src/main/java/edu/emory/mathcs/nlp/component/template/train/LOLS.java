@@ -56,6 +56,12 @@ public class LOLS
 		return gold_probability;
 	}
 	
+	/** @return {@code true} if {@link #chooseGold()} returns {@code true} until the next {@link #updateGoldProbability()}. */
+	public boolean isGoldPath()
+	{
+		return gold_probability >= 1;
+	}
+	
 	public boolean chooseGold()
 	{
 		return (gold_probability > 0) && (gold_probability >= 1 || gold_probability > random.nextDouble());
@@ -22,7 +22,9 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -42,6 +44,7 @@ import edu.emory.mathcs.nlp.common.util.XMLUtils;
 import edu.emory.mathcs.nlp.component.template.OnlineComponent;
 import edu.emory.mathcs.nlp.component.template.config.NLPConfig;
 import edu.emory.mathcs.nlp.component.template.eval.Eval;
+import edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate;
 import edu.emory.mathcs.nlp.component.template.lexicon.GlobalLexica;
 import edu.emory.mathcs.nlp.component.template.node.AbstractNLPNode;
 import edu.emory.mathcs.nlp.component.template.reader.TSVReader;
@@ -49,6 +52,8 @@ import edu.emory.mathcs.nlp.component.template.state.NLPState;
 import edu.emory.mathcs.nlp.component.template.util.NLPFlag;
 import edu.emory.mathcs.nlp.component.template.util.NLPMode;
 import edu.emory.mathcs.nlp.learning.optimization.OnlineOptimizer;
+import edu.emory.mathcs.nlp.learning.util.Instance;
+import edu.emory.mathcs.nlp.learning.util.InstanceCache;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 
 /**
@@ -57,8 +62,95 @@ import it.unimi.dsi.fastutil.objects.Object2IntMap;
  */
 public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPState<N>>
 {
+	private boolean cache_corpus;
+	private boolean columnar;
+	private boolean share_features;
+	private boolean renumber_features;
+	private boolean renumber_by_type;
+	private boolean cache_instances;
+	private long    instance_memory = 1L << 30;
+	
 	public OnlineTrainer() {};
 	
+	/**
+	 * If {@code true}, the training files are read once and kept in memory across epochs,
+	 * along with the indices of their static features (see {@link FeatureTemplate#setStaticCache(boolean)}).
+	 */
+	public void setCacheCorpus(boolean cache)
+	{
+		cache_corpus = cache;
+	}
+	
+	public boolean isCacheCorpus()
+	{
+		return cache_corpus;
+	}
+	
+	/** If {@code true}, the components extract features from the columnar views of sentences (see {@link OnlineComponent#setColumnar(boolean)}). */
+	public void setColumnar(boolean columnar)
+	{
+		this.columnar = columnar;
+	}
+	
+	public boolean isColumnar()
+	{
+		return columnar;
+	}
+	
+	/** If {@code true}, token-level features are cached in the sentences (see {@link OnlineComponent#setShareFeatures(boolean)}). */
+	public void setShareFeatures(boolean share)
+	{
+		share_features = share;
+	}
+	
+	public boolean isShareFeatures()
+	{
+		return share_features;
+	}
+	
+	/**
+	 * If {@code true}, the features are renumbered by their occurrences in the first epoch so the weights of the most frequent features are stored together
+	 * (see {@link FeatureTemplate#renumberFeatures(boolean)}); the features of the same type are numbered together if {@code byType}.
+	 */
+	public void setRenumberFeatures(boolean renumber, boolean byType)
+	{
+		renumber_features = renumber;
+		renumber_by_type  = byType;
+	}
+	
+	public boolean isRenumberFeatures()
+	{
+		return renumber_features;
+	}
+	
+	/**
+	 * If {@code true}, the training instances are recorded in the first epoch and the later epochs train the optimizer with the recorded instances
+	 * instead of processing the training files, as long as the epochs follow the gold path ({@link LOLS#isGoldPath()})
+	 * or the instances do not depend on the predictions ({@link OnlineComponent#isStaticInstances()}).
+	 * If the feature cutoff is greater than 0 or the features are renumbered ({@link #setRenumberFeatures(boolean, boolean)}),
+	 * the instances are recorded in the second epoch, after the first epoch has admitted or renumbered the features.
+	 */
+	public void setCacheInstances(boolean cache)
+	{
+		cache_instances = cache;
+	}
+	
+	public boolean isCacheInstances()
+	{
+		return cache_instances;
+	}
+	
+	/** @param bytes the maximum number of bytes of recorded instances kept in memory; the rest is written to temporary files. */
+	public void setInstanceMemory(long bytes)
+	{
+		instance_memory = bytes;
+	}
+	
+	public long getInstanceMemory()
+	{
+		return instance_memory;
+	}
+	
 //	=================================== COMPONENT ===================================
 	
 	@SuppressWarnings("unchecked")
@@ -88,6 +180,8 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 		
 		HyperParameter hp = configuration.getHyperParameter();
 		component.setHyperParameter(hp);
+		component.setColumnar(columnar);
+		component.setShareFeatures(share_features);
 		
 		if (component.getOptimizer() != null)
 		{
@@ -218,6 +312,8 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 	{
 		OnlineOptimizer optimizer = component.getOptimizer();
 		HyperParameter hp = component.getHyperParameter();
+		Map<String,List<N[]>> cache = cache_corpus ? new HashMap<>() : null;
+		InstanceCache instances = cache_instances ? new InstanceCache(instance_memory) : null;
 		int bestEpoch = -1, bestNZW = -1, NZW, L, SF;
 		Random rand = new XORShiftRandom(9);
 		byte[] bestComponent = null;
@@ -227,6 +323,8 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 		
 		BinUtils.LOG.info(optimizer.toString()+"\n"+hp.toString("- ")+"\n");
 		BinUtils.LOG.info("Training: "+index+"\n");
+		component.getFeatureTemplate().setStaticCache(cache_corpus);
+		component.getFeatureTemplate().setCountOccurrences(renumber_features);
 		
 		for (int epoch=1; epoch<=hp.getMaxEpochs(); epoch++)
 		{
@@ -234,7 +332,16 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 			component.setFlag(NLPFlag.TRAIN);
 			Collections.shuffle(trainFiles, rand);
 			hp.getLOLS().updateGoldProbability();
-			iterate(reader, trainFiles, component, lexica, false);
+			
+			if (instances != null && !hp.getLOLS().isGoldPath() && !component.isStaticInstances())
+			{
+				instances.clear();
+				instances = null;
+			}
+			
+			// with a cutoff, the features of the first epoch miss the occurrences counted before the features are admitted; renumbering changes their indices
+			iterate(reader, trainFiles, component, lexica, false, cache, (epoch == 1 && (component.getFeatureTemplate().getCutoff() > 0 || renumber_features)) ? null : instances);
+			if (epoch == 1 && renumber_features) renumberFeatures(component);
 
 			// info
 			L   = optimizer.getLabelSize();
@@ -256,6 +363,9 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 			}
 		}
 		
+		component.getFeatureTemplate().setStaticCache(false);
+		if (instances != null) instances.clear();
+		
 		if (bestComponent != null)
 			component = (OnlineComponent<N,S>)IOUtils.fromByteArray(bestComponent);
 		
@@ -276,13 +386,70 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 	
 	protected double iterate(TSVReader<N> reader, List<String> inputFiles, OnlineComponent<N,S> component, GlobalLexica<N> lexica, boolean evaluate)
 	{
-		long st, et, time = 0, unit = 0;
+		return iterate(reader, inputFiles, component, lexica, evaluate, null);
+	}
+	
+	/** @param cache if not null, the sentences read from each file are kept in the map and processed from there in later calls. */
+	protected double iterate(TSVReader<N> reader, List<String> inputFiles, OnlineComponent<N,S> component, GlobalLexica<N> lexica, boolean evaluate, Map<String,List<N[]>> cache)
+	{
+		return iterate(reader, inputFiles, component, lexica, evaluate, cache, null);
+	}
+	
+	/**
+	 * @param cache if not null, the sentences read from each file are kept in the map and processed from there in later calls.
+	 * @param instances if not null, the training instances of each file are recorded to the cache and trained from there in later calls.
+	 */
+	protected double iterate(TSVReader<N> reader, List<String> inputFiles, OnlineComponent<N,S> component, GlobalLexica<N> lexica, boolean evaluate, Map<String,List<N[]>> cache, InstanceCache instances)
+	{
+		long time = 0, unit = 0;
 		List<N[]> document;
 		N[] nodes;
 		int count = 0;
 		
 		for (String inputFile : inputFiles)
 		{
+			if (instances != null)
+			{
+				try
+				{
+					InstanceCache.Reader in = instances.getReader(inputFile);
+					
+					if (in != null)
+					{
+						count = replay(component, in, count);
+						continue;
+					}
+				}
+				catch (IOException e) {e.printStackTrace();}
+				
+				instances.begin(inputFile);
+				component.setInstanceCache(instances);
+			}
+			
+			document = (cache != null) ? cache.get(inputFile) : null;
+			
+			if (document != null)
+			{
+				if (component.isDocumentBased())
+				{
+					time += process(component, document);
+					if (!evaluate) count = update(component, count, false);
+					unit++;
+				}
+				else
+				{
+					for (N[] sentence : document)
+					{
+						time += process(component, sentence);
+						if (!evaluate) count = update(component, count, false);
+						unit += sentence.length - 1;
+					}
+				}
+				
+				endRecording(component);
+				continue;
+			}
+			
 			reader.open(IOUtils.createFileInputStream(inputFile));
 			
 			try
@@ -291,28 +458,29 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 				{
 					document = reader.readDocument();
 					lexica.process(document);
-					st = System.currentTimeMillis();
-					component.process(document);
-					et = System.currentTimeMillis();
+					if (cache != null) cache.put(inputFile, document);
+					time += process(component, document);
 					if (!evaluate) count = update(component, count, false);
-					time += et - st;
 					unit++;
 				}
 				else
 				{
+					if (cache != null) cache.put(inputFile, document = new ArrayList<>());
+					
 					while ((nodes = reader.next()) != null)
 					{
 						lexica.process(nodes);
-						st = System.currentTimeMillis();
-						component.process(nodes);
-						et = System.currentTimeMillis();
+						if (document != null) document.add(nodes);
+						time += process(component, nodes);
 						if (!evaluate) count = update(component, count, false);
-						time += et - st;
 						unit += nodes.length - 1;
 					}					
 				}
+				
+				endRecording(component);
 			}
 			catch (Exception e) {e.printStackTrace();}
+			component.setInstanceCache(null);
 			reader.close();
 		}
 		
@@ -320,6 +488,56 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 		return 1000d * unit / time;
 	}
 	
+	/** @return the processing time in milliseconds. */
+	protected long process(OnlineComponent<N,S> component, List<N[]> document)
+	{
+		long st = System.currentTimeMillis();
+		component.process(document);
+		if (component.getInstanceCache() != null) component.getInstanceCache().endSequence();
+		return System.currentTimeMillis() - st;
+	}
+	
+	/** @return the processing time in milliseconds. */
+	protected long process(OnlineComponent<N,S> component, N[] nodes)
+	{
+		long st = System.currentTimeMillis();
+		component.process(nodes);
+		if (component.getInstanceCache() != null) component.getInstanceCache().endSequence();
+		return System.currentTimeMillis() - st;
+	}
+	
+	/** Renumbers the features of the component by their occurrences and moves the weights of the optimizer accordingly. */
+	protected void renumberFeatures(OnlineComponent<N,S> component)
+	{
+		int[] map = component.getFeatureTemplate().renumberFeatures(renumber_by_type);
+		component.getOptimizer().renumberSparseFeatures(map);
+	}
+	
+	/** Finishes recording the instances of the current file to the instance cache of the component if exists. */
+	protected void endRecording(OnlineComponent<N,S> component)
+	{
+		InstanceCache instances = component.getInstanceCache();
+		if (instances == null) return;
+		component.setInstanceCache(null);
+		instances.end();
+	}
+	
+	/** @return the mini-batch count after training the component with the recorded instances, where each sequence is followed by {@link #update(OnlineComponent, int, boolean)}. */
+	protected int replay(OnlineComponent<N,S> component, InstanceCache.Reader in, int count)
+	{
+		Instance instance;
+		
+		while (in.hasNext())
+		{
+			while ((instance = in.next()) != null)
+				component.train(instance);
+			
+			count = update(component, count, false);
+		}
+		
+		return count;
+	}
+	
 	protected int update(OnlineComponent<N,S> component, int count, boolean last)
 	{
 		OnlineOptimizer optimizer = component.getOptimizer();
@@ -338,6 +556,7 @@ public abstract class OnlineTrainer<N extends AbstractNLPNode<N>, S extends NLPS
 	{
 		ObjectOutputStream out = IOUtils.createObjectXZBufferedOutputStream(stream);
 		BinUtils.LOG.info("Saving the model\n");
+		if (component.getFeatureTemplate() != null) component.getFeatureTemplate().freezeFeatureMap();
 		
 		try
 		{
@@ -141,6 +141,12 @@ public abstract class FeedForwardNeuralNetwork extends OnlineOptimizer
 	{
 		return forwardPropagation(x, NLPFlag.EVALUATE)[hidden_dimensions.length];
 	}
+	
+	@Override
+	public float[] scores(FeatureVector x, int[] labels)
+	{
+		return scores(x);
+	}
 
 //	============================== PROPAGATION ==============================
 	
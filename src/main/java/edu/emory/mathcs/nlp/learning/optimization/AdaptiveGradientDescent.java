@@ -48,6 +48,13 @@ public abstract class AdaptiveGradientDescent extends StochasticGradientDescent
 		return b;
 	}
 	
+	@Override
+	public void renumberSparseFeatures(int[] map)
+	{
+		super.renumberSparseFeatures(map);
+		if (diagonals != null) diagonals.renumberSparseFeatures(map);
+	}
+	
 	@Override
 	protected float getLearningRate(int index, boolean sparse)
 	{
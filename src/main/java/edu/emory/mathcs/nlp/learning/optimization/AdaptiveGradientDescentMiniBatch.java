@@ -57,6 +57,15 @@ public abstract class AdaptiveGradientDescentMiniBatch extends AdaptiveGradientD
 		return b;
 	}
 	
+	/** The pending updates of the sparse weights are applied before the features are renumbered. */
+	@Override
+	public void renumberSparseFeatures(int[] map)
+	{
+		if (gradients != null && !sparse_updated_indices.isEmpty()) update(true);
+		super.renumberSparseFeatures(map);
+		if (gradients != null) gradients.renumberSparseFeatures(map);
+	}
+	
 	@Override
 	protected void updateWeight(int y, int xi, float gradient, boolean sparse)
  	{
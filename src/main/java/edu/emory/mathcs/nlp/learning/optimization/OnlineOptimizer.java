@@ -222,6 +222,16 @@ public abstract class OnlineOptimizer implements Serializable
 		return b;
 	}
 	
+	/**
+	 * Moves the sparse weights of each feature {@code xi} to the feature {@code map[xi]}, along with any vector the optimizer keeps per weight.
+	 * Must be called whenever the features are renumbered (see {@link edu.emory.mathcs.nlp.component.template.feature.FeatureTemplate#renumberFeatures(boolean)}).
+	 */
+	public void renumberSparseFeatures(int[] map)
+	{
+		weight_vector.renumberSparseFeatures(map);
+		if (isL1Regularization()) l1_regularizer.renumberSparseFeatures(map);
+	}
+	
 	protected abstract void trainAux(Instance instance);
 	
 	/** Update batch learning (override if necessary). */
@@ -289,6 +299,13 @@ public abstract class OnlineOptimizer implements Serializable
 		return weight_vector.scores(x);
 	}
 	
+	/** @return the scores of only the specific labels if not null (see {@link WeightVector#scores(FeatureVector, int[])}). */
+	public float[] scores(FeatureVector x, int[] labels)
+	{
+		augment(x);
+		return weight_vector.scores(x, labels);
+	}
+	
 	public void addScores(FeatureVector x, float[] scores)
 	{
 		weight_vector.addScores(x, scores);
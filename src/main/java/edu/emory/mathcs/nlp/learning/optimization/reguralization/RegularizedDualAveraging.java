@@ -55,6 +55,12 @@ public class RegularizedDualAveraging extends Regularizer
 		cumulative_penalty.expand(sparseFeatureSize, denseFeatureSize, labelSize);
 	}
 	
+	@Override
+	public void renumberSparseFeatures(int[] map)
+	{
+		cumulative_penalty.renumberSparseFeatures(map);
+	}
+	
 	@Override
 	public void updateWeight(int index, float gradient, float learningRate, int steps, boolean sparse)
  	{
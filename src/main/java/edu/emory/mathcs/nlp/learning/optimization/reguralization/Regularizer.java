@@ -49,4 +49,7 @@ public abstract class Regularizer implements Serializable
 	
 	/** Updates the index'th weight of the weight vector with respect to the regularization. */
 	public abstract void updateWeight(int index, float gradient, float learningRate, int steps, boolean sparse);
+	
+	/** Renumbers the features of the sparse vectors kept by this regularizer other than the weight vector (see {@link WeightVector#renumberSparseFeatures(int[])}). */
+	public void renumberSparseFeatures(int[] map) {}
 }
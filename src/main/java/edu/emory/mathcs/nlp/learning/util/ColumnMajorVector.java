@@ -68,6 +68,28 @@ public class ColumnMajorVector extends MajorVector
 				scores[i] += get(index++) * x[j];
 	}
 	
+	@Override
+	public void addScores(SparseVector x, float[] scores, int[] labels)
+	{
+		int index, featureSize = getFeatureSize();
+		float value;
+		
+		for (SparseItem p : x)
+		{
+			if (p.getIndex() >= featureSize) continue;
+			index = p.getIndex() * label_size;
+			value = p.getValue();
+			for (int y : labels) scores[y] += get(index+y) * value;
+		}
+	}
+	
+	@Override
+	public void addScores(float[] x, float[] scores, int[] labels)
+	{
+		for (int j=0, index=0; j<x.length; j++, index+=label_size)
+			for (int y : labels) scores[y] += get(index+y) * x[j];
+	}
+	
 	@Override
 	protected void setRowSize(int size)
 	{
@@ -29,7 +29,8 @@ import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 public class FeatureMap implements Serializable
 {
 	private static final long serialVersionUID = 6496256881514652478L;
-	private List<Object2IntMap<String>> index_map;
+	private List<Object2IntMap<String>> index_map;	// null if frozen
+	private FrozenFeatureMap frozen_map;
 	private int feature_size;
 	
 	public FeatureMap()
@@ -51,6 +52,8 @@ public class FeatureMap implements Serializable
 	 */
 	public int add(int type, String value)
 	{
+		if (isFrozen()) unfreeze();
+		
 		// expand types
 		for (int i=index_map.size(); i<=type; i++)
 			index_map.add(new Object2IntOpenHashMap<>());
@@ -70,9 +73,32 @@ public class FeatureMap implements Serializable
 	/** @return the index of the specific feature if exists; otherwise, {@code -1}. */
 	public int index(int type, String value)
 	{
+		if (isFrozen()) return frozen_map.index(type, value);
 		return DSUtils.isRange(index_map, type) ? index_map.get(type).getOrDefault(value, -1) : -1;
 	}
 	
+	/**
+	 * Converts the index maps into {@link FrozenFeatureMap}, which takes much less memory and is serialized much faster (e.g., before the model is saved).
+	 * The maps are restored once a feature is added or they are retrieved by {@link #getIndexMaps()}.
+	 */
+	public void freeze()
+	{
+		if (isFrozen()) return;
+		frozen_map = new FrozenFeatureMap(index_map);
+		index_map = null;
+	}
+	
+	public boolean isFrozen()
+	{
+		return frozen_map != null;
+	}
+	
+	private void unfreeze()
+	{
+		index_map = frozen_map.toIndexMaps();
+		frozen_map = null;
+	}
+	
 	/** @return the total number of features. */
 	public int size()
 	{
@@ -81,6 +107,7 @@ public class FeatureMap implements Serializable
 	
 	public List<Object2IntMap<String>> getIndexMaps()
 	{
+		if (isFrozen()) unfreeze();
 		return index_map;
 	}
 	
@@ -94,7 +121,7 @@ public class FeatureMap implements Serializable
 	{
 		int max = -1;
 		
-		for (Object2IntMap<String> map : index_map)
+		for (Object2IntMap<String> map : getIndexMaps())
 		{
 			for (int index : map.values())
 				max = Math.max(max, index);
@@ -106,6 +133,6 @@ public class FeatureMap implements Serializable
 	@Override
 	public String toString()
 	{
-		return index_map.toString();
+		return getIndexMaps().toString();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,215 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap.Entry;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Immutable map from features to their indices backed by {@link MinimalPerfectHash} over the hash codes of the features,
+ * where the values of the features are packed into one UTF-8 byte array for verification.
+ * The rare features sharing hash codes with others are kept in a separate map.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class FrozenFeatureMap implements Serializable
+{
+	private static final long serialVersionUID = 2907354137905528154L;
+	private MinimalPerfectHash    hash;
+	private int[]                 indices;	// slot -> feature index
+	private int[]                 types;	// slot -> feature type
+	private int[]                 offsets;	// slot -> beginning of the value in arena; offsets[size] = arena.length
+	private byte[]                arena;
+	private BitSet                shared;	// slots whose hash codes are shared by other features
+	private Object2IntMap<String> collisions;	// type_value -> index
+	
+	public FrozenFeatureMap(List<Object2IntMap<String>> maps)
+	{
+		IntSet hashCodes = new IntOpenHashSet();
+		IntArrayList primary = new IntArrayList();	// type, index
+		List<String> values = new ArrayList<>();
+		List<String> secondary = new ArrayList<>();
+		IntArrayList secondaryIndices = new IntArrayList();
+		
+		for (int type=0; type<maps.size(); type++)
+		{
+			for (Entry<String> e : maps.get(type).object2IntEntrySet())
+			{
+				String value = e.getKey();
+				
+				if (isEncodable(value) && hashCodes.add(hashCode(type, value.hashCode())))
+				{
+					primary.add(type);
+					primary.add(e.getIntValue());
+					values.add(value);
+				}
+				else
+				{
+					secondary.add(type+"_"+value);
+					secondaryIndices.add(e.getIntValue());
+				}
+			}
+		}
+		
+		int i, slot, size = values.size();
+		hash = new MinimalPerfectHash(hashCodes.toIntArray());
+		indices = new int[size];
+		types   = new int[size];
+		byte[][] bytes = new byte[size][];
+		
+		for (i=0; i<size; i++)
+		{
+			slot = hash.index(hashCode(primary.getInt(2*i), values.get(i).hashCode()));
+			types  [slot] = primary.getInt(2*i);
+			indices[slot] = primary.getInt(2*i+1);
+			bytes  [slot] = values.get(i).getBytes(StandardCharsets.UTF_8);
+		}
+		
+		offsets = new int[size+1];
+		for (i=0; i<size; i++) offsets[i+1] = offsets[i] + bytes[i].length;
+		arena = new byte[offsets[size]];
+		for (i=0; i<size; i++) System.arraycopy(bytes[i], 0, arena, offsets[i], bytes[i].length);
+		if (secondary.isEmpty()) return;
+		
+		shared = new BitSet(size);
+		collisions = new Object2IntOpenHashMap<>();
+		collisions.defaultReturnValue(-1);
+		
+		for (i=0; i<secondary.size(); i++)
+		{
+			String key = secondary.get(i);
+			int type = Integer.parseInt(key.substring(0, key.indexOf('_')));
+			collisions.put(key, secondaryIndices.getInt(i));
+			if (size > 0) shared.set(hash.index(hashCode(type, key.substring(key.indexOf('_')+1).hashCode())));
+		}
+	}
+	
+	/** @return the index of the feature if exists; otherwise, -1. */
+	public int index(int type, CharSequence value)
+	{
+		return (value == null) ? -1 : index(type, value, hashCode(value));
+	}
+	
+	/**
+	 * @param hash the hash code of the value, which must be the same as {@link #hashCode(CharSequence)}.
+	 * @return the index of the feature if exists; otherwise, -1.
+	 */
+	public int index(int type, CharSequence value, int hash)
+	{
+		if (indices.length == 0) return (collisions != null) ? collisions.getInt(type+"_"+value) : -1;
+		int slot = this.hash.index(hashCode(type, hash));
+		if (types[slot] == type && equals(slot, value)) return indices[slot];
+		return (shared != null && shared.get(slot)) ? collisions.getInt(type+"_"+value) : -1;
+	}
+	
+	/** @return the number of features. */
+	public int size()
+	{
+		return indices.length + (collisions != null ? collisions.size() : 0);
+	}
+	
+	/** @return the maps from the values of the features to their indices for all types, where new features can be added. */
+	public List<Object2IntMap<String>> toIndexMaps()
+	{
+		List<Object2IntMap<String>> maps = new ArrayList<>();
+		
+		for (int slot=0; slot<indices.length; slot++)
+			getIndexMap(maps, types[slot]).put(new String(arena, offsets[slot], offsets[slot+1] - offsets[slot], StandardCharsets.UTF_8), indices[slot]);
+		
+		if (collisions != null)
+		{
+			for (Entry<String> e : collisions.object2IntEntrySet())
+			{
+				String key = e.getKey();
+				int idx = key.indexOf('_');
+				getIndexMap(maps, Integer.parseInt(key.substring(0, idx))).put(key.substring(idx+1), e.getIntValue());
+			}
+		}
+		
+		return maps;
+	}
+	
+	private Object2IntMap<String> getIndexMap(List<Object2IntMap<String>> maps, int type)
+	{
+		for (int i=maps.size(); i<=type; i++)
+			maps.add(new Object2IntOpenHashMap<>());
+		
+		return maps.get(type);
+	}
+
+//	=================================== HASH ===================================
+	
+	/** @return the same value as {@link String#hashCode()}. */
+	static public int hashCode(CharSequence value)
+	{
+		if (value instanceof String) return value.hashCode();
+		int h = 0;
+		
+		for (int i=0; i<value.length(); i++)
+			h = 31 * h + value.charAt(i);
+		
+		return h;
+	}
+	
+	static private int hashCode(int type, int hash)
+	{
+		return 31 * hash + type;
+	}
+	
+	/** @return {@code true} if the value is restored from its UTF-8 bytes (e.g., no unpaired surrogate). */
+	static private boolean isEncodable(String value)
+	{
+		return value.equals(new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+	}
+	
+	/** @return {@code true} if the UTF-8 bytes of the slot in the arena decode to the value. */
+	private boolean equals(int slot, CharSequence value)
+	{
+		int i = offsets[slot], end = offsets[slot+1], j = 0, n = value.length(), b, c;
+		
+		while (i < end)
+		{
+			if (j >= n) return false;
+			b = arena[i++] & 0xFF;
+			
+			if (b < 0x80)
+				c = b;
+			else if (b < 0xE0)
+				c = ((b & 0x1F) << 6) | (arena[i++] & 0x3F);
+			else if (b < 0xF0)
+				c = ((b & 0x0F) << 12) | ((arena[i++] & 0x3F) << 6) | (arena[i++] & 0x3F);
+			else
+			{
+				c = ((b & 0x07) << 18) | ((arena[i++] & 0x3F) << 12) | ((arena[i++] & 0x3F) << 6) | (arena[i++] & 0x3F);
+				if (j+1 >= n || value.charAt(j++) != Character.highSurrogate(c)) return false;
+				c = Character.lowSurrogate(c);
+			}
+			
+			if (value.charAt(j++) != c) return false;
+		}
+		
+		return j == n;
+	}
+}
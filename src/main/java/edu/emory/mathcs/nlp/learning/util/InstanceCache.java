@@ -0,0 +1,387 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Training instances kept as primitive arrays in blocks (e.g., one block per training file) so they can be trained again without feature extraction.
+ * Each block consists of sequences (e.g., sentences), which are the units of mini-batch updates.
+ * Once the blocks in memory and the current block exceed the memory limit, the current block is streamed to a temporary file,
+ * where at most {@link #SEGMENT_SIZE} values are buffered in memory at a time.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class InstanceCache
+{
+	static private final int END_OF_SEQUENCE = -1;
+	/** The number of values buffered before they are appended to the temporary file of a spilling block. */
+	static public final int SEGMENT_SIZE = 1 << 18;
+	
+	private Map<String,Block> blocks;
+	private Block             current;
+	private String            current_key;
+	private long              max_memory;
+	private long              memory;
+	private int               segment_size;
+	
+	/** @param maxMemory the maximum number of bytes kept in memory. */
+	public InstanceCache(long maxMemory)
+	{
+		this(maxMemory, SEGMENT_SIZE);
+	}
+	
+	InstanceCache(long maxMemory, int segmentSize)
+	{
+		blocks = new HashMap<>();
+		max_memory = maxMemory;
+		segment_size = segmentSize;
+	}
+
+//	=================================== WRITE ===================================
+	
+	/** Starts recording the block of the key; any block previously recorded for the key, or not finished by {@link #end()}, is discarded. */
+	public void begin(String key)
+	{
+		if (current != null) discard();
+		remove(key);
+		current = new Block();
+		current_key = key;
+		blocks.put(key, current);
+	}
+	
+	/**
+	 * Records the gold label and the features of the instance to the current block.
+	 * The instance must be recorded before it is trained, which adds the bias to its sparse vector.
+	 */
+	public void add(Instance instance)
+	{
+		if (current == null) return;
+		FeatureVector x = instance.getFeatureVector();
+		SparseVector sparse = x.getSparseVector();
+		float[] dense = x.getDenseVector();
+		int size = (sparse != null) ? sparse.size() : 0;
+		boolean binary = true;
+		
+		current.ints.add(instance.getGoldLabel());
+		
+		for (int i=0; i<size && binary; i++)
+			binary = sparse.get(i).getValue() == 1f;
+		
+		current.ints.add(binary ? size : ~size);
+		
+		for (int i=0; i<size; i++)
+		{
+			SparseItem item = sparse.get(i);
+			current.ints.add(item.getIndex());
+			if (!binary) current.floats.add(item.getValue());
+		}
+		
+		if (dense != null)
+		{
+			current.ints.add(dense.length);
+			for (float f : dense) current.floats.add(f);
+		}
+		else
+			current.ints.add(-1);
+		
+		spill();
+	}
+	
+	/** Marks the end of the current sequence. */
+	public void endSequence()
+	{
+		if (current == null) return;
+		current.ints.add(END_OF_SEQUENCE);
+		spill();
+	}
+	
+	/**
+	 * Starts streaming the current block to a temporary file once it does not fit in the memory limit,
+	 * and appends the buffered values to the file whenever they reach the segment size.
+	 * If the file cannot be created, the block is kept in memory;
+	 * if it cannot be written, the block is discarded and the rest of its instances are ignored.
+	 */
+	private void spill()
+	{
+		Block block = current;
+		
+		try
+		{
+			if (block.out == null)
+			{
+				if (block.failed || memory + block.bytes() <= max_memory) return;
+				block.open();
+			}
+			
+			if (block.ints.size() + block.floats.size() >= segment_size)
+			{
+				block.flush();
+				block.ints.trim(segment_size);
+				block.floats.trim(segment_size);
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			if (block.out != null) discard();
+			else block.failed = true;
+		}
+	}
+	
+	/** Finishes the current block; the rest of a spilling block is appended to its temporary file. */
+	public void end()
+	{
+		Block block = current;
+		if (block == null) return;
+		
+		try
+		{
+			if (block.out != null) block.close();
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			discard();
+			return;
+		}
+		
+		current = null;
+		current_key = null;
+		
+		if (block.file == null)
+		{
+			block.ints.trim();
+			block.floats.trim();
+			memory += block.bytes();
+		}
+	}
+	
+	/** Removes the current block without finishing it. */
+	private void discard()
+	{
+		current.delete();
+		blocks.remove(current_key);
+		current = null;
+		current_key = null;
+	}
+
+//	=================================== READ ===================================
+	
+	/** @return {@code true} if the block of the key is completely recorded. */
+	public boolean contains(String key)
+	{
+		Block block = blocks.get(key);
+		return block != null && block != current;
+	}
+	
+	/** @return the reader of the block of the key if {@link #contains(String)}; otherwise, {@code null}. */
+	public Reader getReader(String key) throws IOException
+	{
+		if (!contains(key)) return null;
+		Block block = blocks.get(key);
+		return (block.file != null) ? new Reader(block.load()) : new Reader(block);
+	}
+	
+	public class Reader
+	{
+		private int[]   ints;
+		private float[] floats;
+		private int     i, f;
+		
+		private Reader(Block block)
+		{
+			ints   = block.ints.elements();
+			floats = block.floats.elements();
+		}
+		
+		/** @return {@code true} if there is another sequence to read. */
+		public boolean hasNext()
+		{
+			return i < ints.length;
+		}
+		
+		/** @return the next instance in the current sequence if exists; otherwise, {@code null}, which moves onto the next sequence. */
+		public Instance next()
+		{
+			int label = ints[i++];
+			if (label == END_OF_SEQUENCE) return null;
+			
+			int size = ints[i++];
+			boolean binary = size >= 0;
+			if (!binary) size = ~size;
+			SparseVector sparse = new SparseVector();
+			
+			for (int j=0; j<size; j++)
+				sparse.add(ints[i++], binary ? 1f : floats[f++]);
+			
+			size = ints[i++];
+			float[] dense = null;
+			
+			if (size >= 0)
+			{
+				dense = new float[size];
+				System.arraycopy(floats, f, dense, 0, size);
+				f += size;
+			}
+			
+			return new Instance(label, sparse, dense);
+		}
+	}
+
+//	=================================== HELPERS ===================================
+	
+	/** @return the number of bytes kept in memory. */
+	public long getMemorySize()
+	{
+		return memory;
+	}
+	
+	/** @return the number of blocks written to temporary files. */
+	public int getSpilledSize()
+	{
+		return (int)blocks.values().stream().filter(b -> b.file != null).count();
+	}
+	
+	private void remove(String key)
+	{
+		Block block = blocks.remove(key);
+		if (block == null) return;
+		if (block.file != null) block.delete();
+		else memory -= block.bytes();
+	}
+	
+	/** Removes all blocks including their temporary files. */
+	public void clear()
+	{
+		for (Block block : blocks.values())
+			block.delete();
+		
+		blocks.clear();
+		current = null;
+		current_key = null;
+		memory = 0;
+	}
+	
+	static private class Block
+	{
+		IntArrayList     ints   = new IntArrayList();
+		FloatArrayList   floats = new FloatArrayList();
+		File             file;
+		DataOutputStream out;		// open while the block is being written to the file
+		boolean          failed;	// true if the file cannot be created
+		
+		long bytes()
+		{
+			return 4L * (ints.size() + floats.size());
+		}
+		
+		void open() throws IOException
+		{
+			file = File.createTempFile("nlp4j-", ".instances");
+			file.deleteOnExit();
+			
+			try
+			{
+				out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			}
+			catch (IOException e)
+			{
+				file.delete();
+				file = null;
+				throw e;
+			}
+		}
+		
+		/** Appends the buffered values to the file as a segment of [# of ints][# of floats][ints][floats]. */
+		void flush() throws IOException
+		{
+			out.writeInt(ints.size());
+			out.writeInt(floats.size());
+			for (int i=0; i<ints.size(); i++) out.writeInt(ints.getInt(i));
+			for (int i=0; i<floats.size(); i++) out.writeFloat(floats.getFloat(i));
+			ints.clear();
+			floats.clear();
+		}
+		
+		/** Appends the rest of the values to the file and removes them from memory. */
+		void close() throws IOException
+		{
+			try (DataOutputStream o = out)
+			{
+				if (!ints.isEmpty() || !floats.isEmpty()) flush();
+			}
+			finally
+			{
+				out = null;
+			}
+			
+			ints = null;
+			floats = null;
+		}
+		
+		/** Closes and deletes the file if exists. */
+		void delete()
+		{
+			if (out != null)
+			{
+				try {out.close();}
+				catch (IOException e) {e.printStackTrace();}
+				out = null;
+			}
+			
+			if (file != null) file.delete();
+		}
+		
+		/** @return a block in memory read from the segments in the temporary file. */
+		Block load() throws IOException
+		{
+			Block block = new Block();
+			
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+			{
+				for (int n; (n = readSize(in)) >= 0;)
+				{
+					int m = in.readInt();
+					for (int i=0; i<n; i++) block.ints.add(in.readInt());
+					for (int i=0; i<m; i++) block.floats.add(in.readFloat());
+				}
+			}
+			
+			block.ints.trim();
+			block.floats.trim();
+			return block;
+		}
+		
+		/** @return the number of ints in the next segment if exists; otherwise, -1. */
+		static private int readSize(DataInputStream in) throws IOException
+		{
+			int b = in.read();
+			return (b < 0) ? -1 : (b << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedShort());
+		}
+	}
+}
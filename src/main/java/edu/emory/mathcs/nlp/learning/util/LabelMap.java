@@ -15,6 +15,8 @@
  */
 package edu.emory.mathcs.nlp.learning.util;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -39,13 +41,14 @@ public class LabelMap implements Serializable
 		labels    = new ArrayList<>();
 	}
 	
-	/** @return the index of the specific label. */
+	/** @return the index of the specific label, which is kept as the instance in {@link StringPool#LABELS}. */
 	public int add(String label)
 	{
 		int index = index(label);
 		
 		if (index < 0)
 		{
+			label = StringPool.LABELS.get(label);
 			index = labels.size();
 			index_map.put(label, index);
 			labels.add(label);
@@ -84,6 +87,12 @@ public class LabelMap implements Serializable
 		return labels.toString();
 	}
 	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		labels.replaceAll(StringPool.LABELS::get);
+	}
+	
 	public void remap(Int2IntMap map)
 	{
 		index_map = new Object2IntOpenHashMap<>();
@@ -81,6 +81,21 @@ public class MLUtils
 		return maxIndex;
 	}
 	
+	/** @param labels sorted indices of the candidate labels. */
+	static public int argmax(float[] scores, int[] labels)
+	{
+		if (labels == null || labels.length == 0) return argmax(scores);
+		int maxIndex = labels[0];
+		
+		for (int i=1; i<labels.length; i++)
+		{
+			if (scores[maxIndex] < scores[labels[i]])
+				maxIndex = labels[i];
+		}
+		
+		return maxIndex;
+	}
+	
 	static public int[] argmax2(float[] scores)
 	{
 		return argmax2(scores, scores.length);
@@ -136,4 +151,31 @@ public class MLUtils
 		
 		return max;
 	}
+	
+	/** @param labels sorted indices of the candidate labels. */
+	static public int[] argmax2(float[] scores, int[] labels)
+	{
+		if (labels == null || labels.length == 0) return argmax2(scores);
+		if (labels.length < 2) return new int[]{labels[0],-1};
+		int[] max = {labels[0], labels[1]};
+		int i, y;
+		
+		if (scores[max[0]] < scores[max[1]])
+			DSUtils.swap(max, 0, 1);
+		
+		for (i=2; i<labels.length; i++)
+		{
+			y = labels[i];
+			
+			if (scores[max[0]] < scores[y])
+			{
+				max[1] = max[0];
+				max[0] = y;
+			}
+			else if (scores[max[1]] < scores[y])
+				max[1] = y;
+		}
+		
+		return max;
+	}
 }
@@ -174,6 +174,12 @@ public abstract class MajorVector implements Serializable
 	public abstract void addScores(SparseVector x, float[] scores);
 	public abstract void addScores(float[] x, float[] scores);
 	
+	/** Adds the scores of only the specific labels; the scores of the other labels are not touched. */
+	public abstract void addScores(SparseVector x, float[] scores, int[] labels);
+	
+	/** Adds the scores of only the specific labels; the scores of the other labels are not touched. */
+	public abstract void addScores(float[] x, float[] scores, int[] labels);
+	
 //	=================================== UTILITIES ===================================
 	
 	protected abstract MajorVector createInstance();
@@ -192,6 +198,26 @@ public abstract class MajorVector implements Serializable
 		return vector;
 	}
 	
+	/**
+	 * Moves the weights of each feature {@code xi} to the feature {@code map[xi]}, where {@code map} is a permutation of the features;
+	 * the features beyond the map keep their indices.
+	 */
+	public void renumberFeatures(int[] map)
+	{
+		float[] w = new float[size()];
+		int xi, y, nxi;
+		
+		for (xi=0; xi<feature_size; xi++)
+		{
+			nxi = (xi < map.length) ? map[xi] : xi;
+			
+			for (y=0; y<label_size; y++)
+				w[indexOf(y, nxi)] = get(indexOf(y, xi));
+		}
+		
+		weights = FloatGapList.create(w);
+	}
+	
 	/** @return the number of non-zero weights in this vector. */
 	public int countNonZeroWeights()
 	{
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Minimal perfect hash function over distinct 32-bit hash values (e.g., {@link String#hashCode()}) built by hash-and-displace:
+ * the values are grouped into buckets, and each bucket is given a displacement that sends all of its values to free slots.
+ * Every value in the set maps to a distinct slot in {@code [0, size())}; other values map to arbitrary slots,
+ * so the caller needs to verify the key stored in the slot.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class MinimalPerfectHash implements Serializable
+{
+	private static final long serialVersionUID = -3941578913584512873L;
+	static private final int KEYS_PER_BUCKET = 4;
+	private int[] displacements;
+	private int   size;
+	
+	/** @param values distinct hash values. */
+	public MinimalPerfectHash(int[] values)
+	{
+		size = values.length;
+		displacements = new int[Math.max(1, (size + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET)];
+		long[] hashes = new long[size];
+		
+		for (int i=0; i<size; i++)
+			hashes[i] = mix(values[i]);
+		
+		build(hashes);
+	}
+	
+	/** Since {@link #mix(int)} is a bijection, the hashes of distinct values never collide. */
+	private void build(long[] hashes)
+	{
+		int[] bucketSizes = new int[displacements.length];
+		int b, i, j, k, d;
+		
+		for (long h : hashes)
+			bucketSizes[bucket(h)]++;
+		
+		// keys sorted by buckets
+		int[] begins = new int[displacements.length+1];
+		for (b=0; b<displacements.length; b++) begins[b+1] = begins[b] + bucketSizes[b];
+		int[] keys = new int[size], next = Arrays.copyOf(begins, displacements.length);
+		for (i=0; i<size; i++) keys[next[bucket(hashes[i])]++] = i;
+		
+		// larger buckets are placed first
+		int maxSize = Arrays.stream(bucketSizes).max().getAsInt();
+		int[] buckets = new int[displacements.length];
+		int[] slots = new int[maxSize];
+		BitSet taken = new BitSet(size);
+		
+		for (k=maxSize,i=0; k>0; k--)
+			for (b=0; b<buckets.length; b++)
+				if (bucketSizes[b] == k) buckets[i++] = b;
+		
+		for (int bucket : Arrays.copyOf(buckets, i))
+		{
+			outer: for (d=0; ; d++)
+			{
+				for (i=begins[bucket],k=0; i<begins[bucket+1]; i++,k++)
+				{
+					slots[k] = slot(hashes[keys[i]], d, size);
+					if (taken.get(slots[k])) continue outer;
+					for (j=0; j<k; j++) if (slots[j] == slots[k]) continue outer;
+				}
+				
+				for (j=0; j<k; j++) taken.set(slots[j]);
+				displacements[bucket] = d;
+				break;
+			}
+		}
+	}
+	
+	/** @return the slot of the value in {@code [0, size())}, or -1 if the function is built on no value. */
+	public int index(int value)
+	{
+		if (size == 0) return -1;
+		long h = mix(value);
+		return slot(h, displacements[bucket(h)], size);
+	}
+	
+	/** @return the number of values. */
+	public int size()
+	{
+		return size;
+	}
+	
+	private int bucket(long h)
+	{
+		return reduce(h, displacements.length);
+	}
+	
+	static private int slot(long h, int displacement, int size)
+	{
+		return reduce((h ^ displacement) * 0xC2B2AE3D27D4EB4FL, size);
+	}
+	
+	/** @return the upper 32 bits of the hash mapped to {@code [0, n)} without division. */
+	static private int reduce(long h, int n)
+	{
+		return (int)(((h >>> 32) * n) >>> 32);
+	}
+	
+	/** Multiplication by an odd constant is a bijection. */
+	static private long mix(int value)
+	{
+		return (value & 0xffffffffL) * 0x9E3779B97F4A7C15L;
+	}
+}
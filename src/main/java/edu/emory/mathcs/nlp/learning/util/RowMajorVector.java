@@ -69,6 +69,37 @@ public class RowMajorVector extends MajorVector
 				scores[i] += get(index++) * x[j];
 	}
 	
+	@Override
+	public void addScores(SparseVector x, float[] scores, int[] labels)
+	{
+		int index;
+		
+		for (int y : labels)
+		{
+			index = y * feature_size;
+			
+			for (SparseItem p : x)
+			{
+				if (p.getIndex() < getFeatureSize())
+					scores[y] += get(index+p.getIndex()) * p.getValue();
+			}
+		}
+	}
+	
+	@Override
+	public void addScores(float[] x, float[] scores, int[] labels)
+	{
+		int j, index;
+		
+		for (int y : labels)
+		{
+			index = y * feature_size;
+			
+			for (j=0; j<x.length; j++)
+				scores[y] += get(index+j) * x[j];
+		}
+	}
+	
 	@Override
 	protected void setRowSize(int size)
 	{
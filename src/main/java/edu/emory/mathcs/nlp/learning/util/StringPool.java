@@ -0,0 +1,67 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe pool that returns one canonical instance for equal strings so that repeated tags share memory
+ * and their comparisons succeed on reference equality in {@link String#equals(Object)}.
+ * Once the pool is full, strings that are not in the pool are returned as they are.
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class StringPool
+{
+	/** The pool shared by part-of-speech tags, named entity tags, dependency labels, and {@link LabelMap}. */
+	static public final StringPool LABELS = new StringPool(1 << 16);
+	
+	private ConcurrentHashMap<String,String> pool;
+	private int capacity;
+	
+	/** @param capacity the maximum number of strings kept in this pool. */
+	public StringPool(int capacity)
+	{
+		this.capacity = capacity;
+		pool = new ConcurrentHashMap<>();
+	}
+	
+	/** @return the canonical instance of the string if the pool has or can take it; otherwise, the string itself. */
+	public String get(String s)
+	{
+		if (s == null) return null;
+		String t = pool.get(s);
+		if (t != null) return t;
+		if (pool.size() >= capacity) return s;
+		t = pool.putIfAbsent(s, s);
+		return (t != null) ? t : s;
+	}
+	
+	/** @return the number of strings in this pool. */
+	public int size()
+	{
+		return pool.size();
+	}
+	
+	public int getCapacity()
+	{
+		return capacity;
+	}
+	
+	public void clear()
+	{
+		pool.clear();
+	}
+}
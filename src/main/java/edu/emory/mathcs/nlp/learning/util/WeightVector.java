@@ -122,6 +122,12 @@ public class WeightVector implements Serializable
 		return vector;
 	}
 	
+	/** Renumbers the features of the sparse weight vector (see {@link MajorVector#renumberFeatures(int[])}). */
+	public void renumberSparseFeatures(int[] map)
+	{
+		sparse_weight_vector.renumberFeatures(map);
+	}
+	
 	public int countNonZeroWeights()
 	{
 		return sparse_weight_vector.countNonZeroWeights() + dense_weight_vector.countNonZeroWeights();
@@ -171,4 +177,17 @@ public class WeightVector implements Serializable
 		if (x.hasDenseVector())      dense_weight_vector .addScores(x.getDenseVector() , scores);
 		if (hasActivationFunction()) activation_function .apply(scores);
 	}
+	
+	/**
+	 * @return the scores of only the specific labels given the feature vector, where the other labels get {@code 0};
+	 * all labels are scored if {@code labels} is null or the activation function needs the scores of all labels.
+	 */
+	public float[] scores(FeatureVector x, int[] labels)
+	{
+		if (labels == null || hasActivationFunction()) return scores(x);
+		float[] scores = new float[getLabelSize()];
+		if (x.hasSparseVector()) sparse_weight_vector.addScores(x.getSparseVector(), scores, labels);
+		if (x.hasDenseVector())  dense_weight_vector .addScores(x.getDenseVector() , scores, labels);
+		return scores;
+	}
 }
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.dep;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.reader.NLPReader;
+import edu.emory.mathcs.nlp.component.template.reader.TSVReader;
+import edu.emory.mathcs.nlp.learning.util.LabelMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DEPStateTest
+{
+	@Test
+	public void testStaticOracle() throws Exception
+	{
+		TSVReader<NLPNode> reader = new NLPReader();
+		reader.open(IOUtils.createFileInputStream("src/test/resources/dat/sample-dev.tsv"));
+		reader.form   = 1;
+		reader.lemma  = 2;
+		reader.pos    = 3;
+		reader.feats  = 4;
+		reader.dhead  = 5;
+		reader.deprel = 6;
+		
+		Map<NLPNode[],int[]> cache = new HashMap<>();
+		LabelMap map = new LabelMap();
+		NLPNode[] nodes;
+		int count = 0;
+		
+		while ((nodes = reader.next()) != null)
+		{
+			IntArrayList dynamic = new IntArrayList();
+			DEPState<NLPNode> state = new DEPState<>(nodes);
+			assertTrue(state.saveOracle());
+			
+			while (!state.isTerminate())
+			{
+				int[] top2 = {map.add(state.getOracle()), -1};
+				dynamic.add(top2[0]);
+				state.next(map, top2, null);
+			}
+			
+			state.resetOracle();
+			state = new DEPState<>(nodes, new DEPTransitionTable(), cache);
+			state.saveOracle();
+			
+			for (int i=0; !state.isTerminate(); i++)
+			{
+				int[] top2 = {state.getOracle(map), -1};
+				assertEquals(dynamic.getInt(i), top2[0]);
+				state.next(map, top2, null);
+			}
+			
+			assertEquals(dynamic, new IntArrayList(cache.get(nodes)));
+			state.resetOracle();
+			count++;
+		}
+		
+		reader.close();
+		assertEquals(count, cache.size());
+	}
+	
+	@Test
+	public void testAncestors()
+	{
+		Random rand = new Random(1);
+		
+		for (int t=0; t<100; t++)
+		{
+			NLPNode[] nodes = createNodes(1 + rand.nextInt(80));
+			DEPState<NLPNode> state = new DEPState<>(nodes);
+			
+			for (int k=0; k<nodes.length*2; k++)
+			{
+				NLPNode node = nodes[1 + rand.nextInt(nodes.length-1)];
+				NLPNode head = nodes[rand.nextInt(nodes.length)];
+				if (head != node && !head.isDescendantOf(node)) state.setDependencyHead(node, head, "dep");
+				
+				for (NLPNode a : nodes)
+					for (NLPNode b : nodes)
+						assertEquals(a.isDescendantOf(b), state.isDescendant(a, b));
+			}
+		}
+	}
+	
+	@Test
+	public void testAncestorsLongSentence()
+	{
+		Random rand = new Random(1);
+		NLPNode[] nodes = createNodes(DEPState.MAX_ANCESTOR_SIZE + 10);
+		DEPState<NLPNode> state = new DEPState<>(nodes);
+		
+		for (int k=0; k<nodes.length; k++)
+		{
+			NLPNode node = nodes[1 + rand.nextInt(nodes.length-1)];
+			NLPNode head = nodes[rand.nextInt(nodes.length)];
+			if (head != node && !head.isDescendantOf(node)) state.setDependencyHead(node, head, "dep");
+		}
+		
+		for (NLPNode a : nodes)
+			for (NLPNode b : nodes)
+				assertEquals(a.isDescendantOf(b), state.isDescendant(a, b));
+	}
+	
+//	@Test
+	public void benchmarkAncestors()
+	{
+		final int size = 200, sentences = 2000;
+		Random rand = new Random(1);
+		long walk = 0, index = 0, st;
+		int count = 0;
+		
+		for (int t=0; t<sentences*2; t++)
+		{
+			NLPNode[] nodes = createNodes(size);
+			DEPState<NLPNode> state = new DEPState<>(nodes);
+			boolean useIndex = t % 2 == 0;
+			st = System.nanoTime();
+			
+			// deep trees: most tokens attach to the previous token, as in long right-branching web sentences
+			for (int i=1; i<nodes.length; i++)
+			{
+				NLPNode head = nodes[rand.nextInt(10) > 0 ? i-1 : rand.nextInt(i)];
+				
+				for (int k=0; k<4; k++)
+				{
+					NLPNode a = nodes[rand.nextInt(i+1)];
+					if (useIndex ? state.isDescendant(a, head) : a.isDescendantOf(head)) count++;
+				}
+				
+				if (useIndex) state.setDependencyHead(nodes[i], head, "dep");
+				else nodes[i].setDependencyHead(head, "dep");
+			}
+			
+			if (useIndex) index += System.nanoTime() - st;
+			else walk += System.nanoTime() - st;
+		}
+		
+		System.out.printf("%d-token sentences: walk = %d ms, index = %d ms (%d)\n", size, walk / 1000000, index / 1000000, count);
+	}
+	
+	private NLPNode[] createNodes(int size)
+	{
+		NLPNode[] nodes = new NLPNode[size+1];
+		nodes[0] = new NLPNode();
+		for (int i=1; i<nodes.length; i++) nodes[i] = new NLPNode(i, "w"+i);
+		return nodes;
+	}
+}
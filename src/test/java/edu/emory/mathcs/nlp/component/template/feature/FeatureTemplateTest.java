@@ -0,0 +1,355 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.feature;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.dep.DEPState;
+import edu.emory.mathcs.nlp.component.pos.POSState;
+import edu.emory.mathcs.nlp.component.template.lexicon.WordClusterLexicon;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.reader.NLPReader;
+import edu.emory.mathcs.nlp.component.template.train.HyperParameter;
+import edu.emory.mathcs.nlp.learning.util.ColumnMajorVector;
+import edu.emory.mathcs.nlp.learning.util.LabelMap;
+import edu.emory.mathcs.nlp.learning.util.MajorVector;
+import edu.emory.mathcs.nlp.learning.util.SparseVector;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class FeatureTemplateTest
+{
+	@Test
+	public void testStaticCache() throws Exception
+	{
+		List<NLPNode[]> corpus = readCorpus();
+		FeatureTemplate<NLPNode,POSState<NLPNode>> gold = createFeatureTemplate();
+		FeatureTemplate<NLPNode,POSState<NLPNode>> auto = createFeatureTemplate();
+		auto.setStaticCache(true);
+		
+		assertTrue (auto.static_types[0]);
+		assertFalse(auto.static_types[1]);
+		assertTrue (auto.static_types[2]);
+		assertTrue (auto.static_types[3]);
+		assertFalse(auto.static_types[4]);
+		
+		for (int epoch=0; epoch<2; epoch++)
+		{
+			for (NLPNode[] sentence : corpus)
+				assertEquals(process(gold, sentence), process(auto, sentence));
+		}
+		
+		assertEquals(corpus.size(), auto.static_cache.size());
+		assertEquals(gold.getSparseFeatureSize(), auto.getSparseFeatureSize());
+	}
+	
+	@Test
+	public void testClusterIndex() throws Exception
+	{
+		List<NLPNode[]> gold = readCorpus(), auto = readCorpus();
+		Map<String,Set<String>> clusters = createWordClusters(gold);
+		WordClusterLexicon lexicon = WordClusterLexicon.fromMap(clusters);
+		
+		for (NLPNode[] nodes : gold)
+			for (int i=1; i<nodes.length; i++) nodes[i].setWordClusters(clusters.get(nodes[i].getWordForm()));
+		
+		for (NLPNode[] nodes : auto)
+			for (int i=1; i<nodes.length; i++) nodes[i].setWordClusters(lexicon, lexicon.getRow(nodes[i].getWordForm()));
+		
+		FeatureTemplate<NLPNode,POSState<NLPNode>> g = createClusterFeatureTemplate(1);
+		FeatureTemplate<NLPNode,POSState<NLPNode>> a = createClusterFeatureTemplate(1);
+		
+		for (int epoch=0; epoch<2; epoch++)
+		{
+			for (int i=0; i<gold.size(); i++)
+			{
+				process(g, gold.get(i));
+				process(a, auto.get(i));
+			}
+			
+			// the prefixes are counted for every occurrence although their indices are cached
+			assertEquals(g.feature_count, a.feature_count);
+			assertEquals(g.getSparseFeatureSize(), a.getSparseFeatureSize());
+			g.initFeatureCount();
+			a.initFeatureCount();
+		}
+	}
+	
+	@Test
+	public void testRenumberFeatures() throws Exception
+	{
+		List<NLPNode[]> corpus = readCorpus();
+		
+		for (boolean byType : new boolean[]{false, true})
+		{
+			FeatureTemplate<NLPNode,DEPState<NLPNode>> template = createDEPFeatureTemplate();
+			template.setCountOccurrences(true);
+			for (NLPNode[] sentence : corpus) processDEP(template, sentence, true);
+			
+			final int L = 3, F = template.getSparseFeatureSize();
+			MajorVector weights = new ColumnMajorVector();
+			Random rand = new Random(1);
+			weights.expand(L, F);
+			for (int i=0; i<weights.size(); i++) weights.set(i, rand.nextFloat());
+			List<float[]> scores = score(template, weights, corpus.get(0));
+			
+			// without caches, the occurrences are the same as the counts
+			int[] counts = getCounts(template, template.feature_count);
+			for (int i=1; i<F; i++) assertEquals(counts[i], template.getOccurrences(i));
+			
+			int[] map = template.renumberFeatures(byType);
+			assertTrue(IntStream.range(0, F).anyMatch(i -> map[i] != i));
+			assertFalse(template.isCountOccurrences());
+			weights.renumberFeatures(map);
+			assertEquals(F, template.getSparseFeatureSize());
+			assertEquals(scores.size(), score(template, weights, corpus.get(0)).size());
+			
+			for (int i=0; i<scores.size(); i++)
+				assertArrayEquals(scores.get(i), score(template, weights, corpus.get(0)).get(i), 1e-6f);
+			
+			assertDescending(template, template.feature_count, byType);
+		}
+	}
+	
+	@Test
+	public void testRenumberFeaturesWithCaches() throws Exception
+	{
+		List<NLPNode[]> gold = readCorpus(), auto = readCorpus();
+		Map<String,Set<String>> clusters = createWordClusters(gold);
+		WordClusterLexicon lexicon = WordClusterLexicon.fromMap(clusters);
+		
+		for (NLPNode[] nodes : gold)
+			for (int i=1; i<nodes.length; i++) nodes[i].setWordClusters(clusters.get(nodes[i].getWordForm()));
+		
+		for (NLPNode[] nodes : auto)
+			for (int i=1; i<nodes.length; i++) nodes[i].setWordClusters(lexicon, lexicon.getRow(nodes[i].getWordForm()));
+		
+		FeatureTemplate<NLPNode,POSState<NLPNode>> g = createClusterFeatureTemplate(0);
+		
+		for (int epoch=0; epoch<2; epoch++)
+			for (NLPNode[] sentence : gold) process(g, sentence);
+		
+		for (boolean byType : new boolean[]{false, true})
+		{
+			FeatureTemplate<NLPNode,POSState<NLPNode>> a = createClusterFeatureTemplate(0);
+			a.setStaticCache(true);
+			a.setCountOccurrences(true);
+			
+			// the static features are taken from the cache in the second epoch
+			for (int epoch=0; epoch<2; epoch++)
+				for (NLPNode[] sentence : auto) process(a, sentence);
+			
+			assertTrue(a.static_types[2] && a.static_types[3] && a.static_types[4]);
+			assertEquals(auto.size(), a.static_cache.size());
+			assertEquals(g.getSparseFeatureSize(), a.getSparseFeatureSize());
+			assertFalse(g.feature_count.equals(a.feature_count));
+			
+			// the occurrences of the cluster and static features are the same as the counts without caches
+			int[] counts = getCounts(a, g.feature_count);
+			for (int i=1; i<counts.length; i++) assertEquals(counts[i], a.getOccurrences(i));
+			
+			a.renumberFeatures(byType);
+			assertDescending(a, g.feature_count, byType);
+		}
+	}
+	
+	/** @return the counts of the features in the template by their indices. */
+	private int[] getCounts(FeatureTemplate<?,?> template, Object2IntMap<String> featureCount)
+	{
+		List<Object2IntMap<String>> maps = template.feature_map.getIndexMaps();
+		int[] counts = new int[template.getSparseFeatureSize()];
+		
+		for (int type=0; type<maps.size(); type++)
+			for (Object2IntMap.Entry<String> e : maps.get(type).object2IntEntrySet())
+				counts[e.getIntValue()] = featureCount.getInt(type+e.getKey());
+		
+		return counts;
+	}
+	
+	/** Checks that the counts of the features (of each type if byType) are in descending order of their indices. */
+	private void assertDescending(FeatureTemplate<?,?> template, Object2IntMap<String> featureCount, boolean byType)
+	{
+		List<Object2IntMap<String>> maps = template.feature_map.getIndexMaps();
+		int[] counts = getCounts(template, featureCount), types = new int[counts.length];
+		
+		for (int type=0; type<maps.size(); type++)
+			for (Object2IntMap.Entry<String> e : maps.get(type).object2IntEntrySet())
+				types[e.getIntValue()] = type;
+		
+		for (int i=2; i<counts.length; i++)
+		{
+			if (byType) assertTrue(types[i-1] < types[i] || (types[i-1] == types[i] && counts[i-1] >= counts[i]));
+			else assertTrue(counts[i-1] >= counts[i]);
+		}
+	}
+	
+	private List<float[]> score(FeatureTemplate<NLPNode,DEPState<NLPNode>> template, MajorVector weights, NLPNode[] nodes)
+	{
+		DEPState<NLPNode> state = new DEPState<>(nodes);
+		List<float[]> scores = new ArrayList<>();
+		LabelMap map = new LabelMap();
+		state.saveOracle();
+		
+		while (!state.isTerminate())
+		{
+			SparseVector x = template.createSparseVector(state, false);
+			float[] s = new float[weights.getLabelSize()];
+			weights.addScores(x, s);
+			scores.add(s);
+			state.next(map, new int[]{state.getOracle(map), -1}, null);
+		}
+		
+		state.resetOracle();
+		return scores;
+	}
+	
+//	@Test
+	public void benchmarkCreateSparseVector() throws Exception
+	{
+		List<NLPNode[]> corpus = readCorpus();
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> template = createDEPFeatureTemplate();
+		for (NLPNode[] sentence : corpus) processDEP(template, sentence, true);
+		long st = System.nanoTime();
+		
+		for (int t=0; t<100; t++)
+			for (NLPNode[] sentence : corpus) processDEP(template, sentence, false);
+		
+		System.out.printf("createSparseVector: %d ms\n", (System.nanoTime() - st) / 1000000);
+	}
+	
+	private List<NLPNode[]> readCorpus() throws Exception
+	{
+		NLPReader reader = new NLPReader(1, 2, 3, 4, 5, 6, 7, 8);
+		reader.open(IOUtils.createFileInputStream("src/test/resources/dat/sample-dev.tsv"));
+		List<NLPNode[]> corpus = new ArrayList<>();
+		NLPNode[] nodes;
+		while ((nodes = reader.next()) != null) corpus.add(nodes);
+		reader.close();
+		return corpus;
+	}
+	
+	private FeatureTemplate<NLPNode,POSState<NLPNode>> createFeatureTemplate()
+	{
+		FeatureTemplate<NLPNode,POSState<NLPNode>> template = new FeatureTemplate<>(null, new HyperParameter());
+		template.addSet(new FeatureItem(Source.i, null, 0, Field.orthographic, null));
+		template.addSet(new FeatureItem(Source.i, Relation.h, 0, Field.orthographic, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.suffix, 2));
+		template.add(new FeatureItem(Source.i, null, -1, Field.word_form, null), new FeatureItem(Source.i, null, 1, Field.word_form_lowercase, null));
+		template.add(new FeatureItem(Source.i, null, -1, Field.part_of_speech_tag, null));
+		return template;
+	}
+	
+	/** @return word -> prefixes of a pseudo-random path, where words sharing their first letters share prefixes. */
+	private Map<String,Set<String>> createWordClusters(List<NLPNode[]> corpus)
+	{
+		Map<String,Set<String>> clusters = new HashMap<>();
+		
+		for (NLPNode[] nodes : corpus)
+		{
+			for (int i=1; i<nodes.length; i++)
+			{
+				String word = nodes[i].getWordForm();
+				String path = String.format("%8s", Integer.toBinaryString(word.charAt(0) & 0xFF)).replace(' ', '0') + (word.length() % 4 == 0 ? "1" : "01");
+				clusters.put(word, new HashSet<>(Arrays.asList(path.substring(0, 2), path.substring(0, 6), path)));
+			}
+		}
+		
+		return clusters;
+	}
+	
+	private FeatureTemplate<NLPNode,POSState<NLPNode>> createClusterFeatureTemplate(int cutoff)
+	{
+		FeatureTemplate<NLPNode,POSState<NLPNode>> template = new FeatureTemplate<>(null, new HyperParameter());
+		template.setCutoff(cutoff);
+		template.addSet(new FeatureItem(Source.i, null, 0, Field.word_clusters, null));
+		template.addSet(new FeatureItem(Source.i, null, 1, Field.word_clusters, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.word_form, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.suffix, 2));
+		template.add(new FeatureItem(Source.i, null, -1, Field.word_form, null), new FeatureItem(Source.i, null, 1, Field.word_form_lowercase, null));
+		template.add(new FeatureItem(Source.i, null, -1, Field.part_of_speech_tag, null));
+		return template;
+	}
+	
+	private FeatureTemplate<NLPNode,DEPState<NLPNode>> createDEPFeatureTemplate()
+	{
+		FeatureTemplate<NLPNode,DEPState<NLPNode>> template = new FeatureTemplate<>(null, new HyperParameter());
+		template.addSet(new FeatureItem(Source.j, null, 0, Field.orthographic, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.word_form, null));
+		template.add(new FeatureItem(Source.j, null, 1, Field.lemma, null));
+		template.add(new FeatureItem(Source.k, null, 1, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.part_of_speech_tag, null), new FeatureItem(Source.j, null, 0, Field.part_of_speech_tag, null));
+		template.add(new FeatureItem(Source.i, Relation.h, 0, Field.dependency_label, null));
+		template.add(new FeatureItem(Source.i, Relation.lmd, 0, Field.dependency_label, null), new FeatureItem(Source.i, Relation.rmd2, 0, Field.lemma, null));
+		template.add(new FeatureItem(Source.j, Relation.lns, 0, Field.word_form, null));
+		template.add(new FeatureItem(Source.i, null, 0, Field.valency, Direction.all));
+		template.add(new FeatureItem(Source.j, null, 0, Field.prefix, 2));
+		template.add(new FeatureItem(Source.j, null, 0, Field.feats, "pos2"));
+		template.add(new FeatureItem(Source.i, null, 0, Field.distance, null));
+		return template;
+	}
+	
+	private String processDEP(FeatureTemplate<NLPNode,DEPState<NLPNode>> template, NLPNode[] nodes, boolean isTrain)
+	{
+		DEPState<NLPNode> state = new DEPState<>(nodes);
+		StringBuilder build = new StringBuilder();
+		LabelMap map = new LabelMap();
+		state.saveOracle();
+		
+		while (!state.isTerminate())
+		{
+			build.append(template.createFeatureVector(state, isTrain).getSparseVector().toString());
+			state.next(map, new int[]{state.getOracle(map), -1}, null);
+		}
+		
+		state.resetOracle();
+		return build.toString();
+	}
+	
+	private String process(FeatureTemplate<NLPNode,POSState<NLPNode>> template, NLPNode[] nodes)
+	{
+		POSState<NLPNode> state = new POSState<>(nodes);
+		StringBuilder build = new StringBuilder();
+		LabelMap map = new LabelMap();
+		state.saveOracle();
+		
+		while (!state.isTerminate())
+		{
+			build.append(template.createFeatureVector(state, true).getSparseVector().toString());
+			state.next(map, new int[]{state.getOracle(map), -1}, null);
+		}
+		
+		state.resetOracle();
+		return build.toString();
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class FrozenStringSetTest
+{
+	@Test
+	public void test()
+	{
+		Set<String> set = new HashSet<>();
+		for (int i=0; i<10000; i++) set.add("w"+i);
+		FrozenStringSet frozen = new FrozenStringSet(set);
+		boolean[] indices = new boolean[set.size()];
+		
+		assertEquals(set, frozen);
+		
+		for (String s : set)
+		{
+			assertTrue(frozen.contains(s));
+			assertTrue(frozen.contains(new StringBuilder(s)));
+			indices[frozen.indexOf(s)] = true;
+		}
+		
+		for (boolean b : indices) assertTrue(b);
+		assertFalse(frozen.contains("w10000"));
+		assertFalse(frozen.contains(null));
+		
+		frozen = new FrozenStringSet(Arrays.asList("the", "a", "the"));
+		assertEquals(2, frozen.size());
+		assertTrue (frozen.contains("a"));
+		assertFalse(frozen.contains("an"));
+		
+		// "Aa" and "BB" share the same hash code
+		frozen = new FrozenStringSet(Arrays.asList("Aa", "BB", "C"));
+		assertTrue (frozen.contains("Aa"));
+		assertTrue (frozen.contains("BB"));
+		assertTrue (frozen.contains("C"));
+		assertFalse(frozen.contains("D"));
+		assertEquals(3, new HashSet<>(Arrays.asList(frozen.indexOf("Aa"), frozen.indexOf("BB"), frozen.indexOf("C"))).size());
+		
+		frozen = new FrozenStringSet(new HashSet<>());
+		assertFalse(frozen.contains("a"));
+	}
+}
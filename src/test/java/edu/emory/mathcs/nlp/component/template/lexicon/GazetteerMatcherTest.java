@@ -0,0 +1,140 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.common.collection.tree.PrefixNode;
+import edu.emory.mathcs.nlp.common.collection.tree.PrefixTree;
+import edu.emory.mathcs.nlp.common.collection.tuple.ObjectIntIntTriple;
+import edu.emory.mathcs.nlp.common.util.Splitter;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.util.BILOU;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class GazetteerMatcherTest
+{
+	@Test
+	public void test()
+	{
+		GazetteerMatcherBuilder builder = new GazetteerMatcherBuilder();
+		add(builder, "new york", "LOC");
+		add(builder, "new york city", "LOC");
+		add(builder, "york city", "ORG");
+		add(builder, "york", "PER");
+		add(builder, "new jersey", "LOC");
+		check(builder.build());
+		
+		PrefixTree<String,Set<String>> tree = new PrefixTree<>();
+		add(tree, "new york", "LOC");
+		add(tree, "new york city", "LOC");
+		add(tree, "york city", "ORG");
+		add(tree, "york", "PER");
+		add(tree, "new jersey", "LOC");
+		check(GazetteerMatcherBuilder.build(tree));
+	}
+	
+	@Test
+	public void testPrefixTree()
+	{
+		PrefixTree<String,Set<String>> tree = new PrefixTree<>();
+		add(tree, "a", "X");
+		add(tree, "a b", "Y");
+		add(tree, "a b c", "X");
+		add(tree, "b c", "Z");
+		add(tree, "b c d", "Y");
+		add(tree, "c", "Z");
+		add(tree, "d a", "X");
+		GazetteerMatcher matcher = GazetteerMatcherBuilder.build(tree);
+		
+		for (String sentence : new String[]{"a b c d a b", "b a b c d", "c c a e b c", "d a b c d a"})
+		{
+			NLPNode[] expected = createNodes(sentence);
+			NLPNode[] nodes = createNodes(sentence);
+			
+			for (ObjectIntIntTriple<Set<String>> t : tree.getAll(expected, 1, NLPNode::getWordForm, false, false))
+				for (String type : t.o) tag(expected, t.i1, t.i2, type);
+			
+			matcher.addNamedEntityGazetteers(nodes, NLPNode::getWordForm);
+			
+			for (int i=1; i<nodes.length; i++)
+				assertEquals(expected[i].getNamedEntityGazetteerSet(), nodes[i].getNamedEntityGazetteerSet());
+		}
+	}
+	
+	void check(GazetteerMatcher matcher)
+	{
+		NLPNode[] nodes = createNodes("i love new new york city");
+		matcher.addNamedEntityGazetteers(nodes, NLPNode::getWordForm);
+		
+		assertNull(nodes[1].getNamedEntityGazetteerSet());
+		assertNull(nodes[2].getNamedEntityGazetteerSet());
+		assertNull(nodes[3].getNamedEntityGazetteerSet());
+		assertEquals("[B-LOC]", nodes[4].getNamedEntityGazetteerSet().toString());
+		assertEquals("[B-ORG, I-LOC]", nodes[5].getNamedEntityGazetteerSet().toString());
+		assertEquals("[L-LOC, L-ORG]", nodes[6].getNamedEntityGazetteerSet().toString());
+		assertSame(matcher.getBILOUTag(BILOU.B, 0), matcher.getBILOUTag(BILOU.B, 0));
+	}
+	
+	void tag(NLPNode[] nodes, int begin, int end, String type)
+	{
+		if (begin == end)
+			nodes[begin].addNamedEntityGazetteer(BILOU.toBILOUTag(BILOU.U, type));
+		else
+		{
+			nodes[begin].addNamedEntityGazetteer(BILOU.toBILOUTag(BILOU.B, type));
+			nodes[end].addNamedEntityGazetteer(BILOU.toBILOUTag(BILOU.L, type));
+			
+			for (int k=begin+1; k<end; k++)
+				nodes[k].addNamedEntityGazetteer(BILOU.toBILOUTag(BILOU.I, type));
+		}
+	}
+	
+	NLPNode[] createNodes(String sentence)
+	{
+		String[] t = Splitter.splitSpace(sentence);
+		NLPNode[] nodes = new NLPNode[t.length+1];
+		nodes[0] = new NLPNode();
+		
+		for (int i=0; i<t.length; i++)
+			nodes[i+1] = new NLPNode(i+1, t[i]);
+		
+		return nodes;
+	}
+	
+	void add(GazetteerMatcherBuilder builder, String entry, String type)
+	{
+		String[] t = Splitter.splitSpace(entry);
+		builder.add(t, 0, t.length, type);
+	}
+	
+	void add(PrefixTree<String,Set<String>> tree, String entry, String type)
+	{
+		String[] t = Splitter.splitSpace(entry);
+		PrefixNode<String,Set<String>> node = tree.add(t, 0, t.length, s -> s);
+		if (node.getValue() == null) node.setValue(new TreeSet<>());
+		node.getValue().add(type);
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class IndexedLexiconTest
+{
+	@Test
+	public void test() throws Exception
+	{
+		Map<String,List<String>> map = new HashMap<>();
+		map.put("run"  , Arrays.asList("VB", "NN", "VBN"));
+		map.put("the"  , Arrays.asList("DT"));
+		map.put("naïve", Arrays.asList("JJ"));
+		
+		File file = File.createTempFile("lexicon", ".idx");
+		file.deleteOnExit();
+		IndexedLexicon.save(map, file.getAbsolutePath());
+		
+		for (int cacheSize : new int[]{0, 1})
+		{
+			IndexedLexicon<List<String>> lexicon = IndexedLexicon.open(file.getAbsolutePath(), cacheSize);
+			assertEquals(3, lexicon.size());
+			assertEquals(map, lexicon);
+			assertEquals(map.get("run"), lexicon.get("run"));
+			assertEquals(map.get("the"), lexicon.get("the"));
+			assertEquals(map.get("run"), lexicon.get("run"));
+			assertNull(lexicon.get("walk"));
+			assertTrue (lexicon.containsKey("naïve"));
+			assertFalse(lexicon.containsKey("naive"));
+			
+			Map<String,List<String>> filtered = lexicon.filter(Arrays.asList("the", "walk"));
+			assertEquals(1, filtered.size());
+			assertEquals(map.get("the"), filtered.get("the"));
+		}
+	}
+	
+	@Test
+	public void testChunks() throws Exception
+	{
+		Map<String,List<String>> map = new HashMap<>();
+		
+		for (int i=0; i<1000; i++)
+			map.put("w"+i, Collections.nCopies(i % 7, "t"+i));
+		
+		File file = File.createTempFile("lexicon", ".idx");
+		file.deleteOnExit();
+		IndexedLexicon.save(map, file.getAbsolutePath());
+		
+		// values span the boundaries of small chunks
+		for (int chunkSize : new int[]{16, 64, IndexedLexicon.CHUNK_SIZE})
+		{
+			IndexedLexicon<List<String>> lexicon = IndexedLexicon.open(file.getAbsolutePath(), 0, chunkSize);
+			assertEquals(map, lexicon);
+			
+			for (String key : map.keySet())
+				assertEquals(map.get(key), lexicon.get(key));
+		}
+		
+		IndexedLexicon.save(new HashMap<>(), file.getAbsolutePath());
+		assertTrue(IndexedLexicon.open(file.getAbsolutePath(), 0).isEmpty());
+	}
+	
+	@Test
+	public void testWordClusters() throws Exception
+	{
+		Map<String,Set<String>> map = new HashMap<>();
+		map.put("run", new HashSet<>(Arrays.asList("1", "10", "101")));
+		map.put("the", new HashSet<>(Arrays.asList("0", "01")));
+		
+		File file = File.createTempFile("clusters", ".idx");
+		file.deleteOnExit();
+		IndexedLexicon.save(map, file.getAbsolutePath());
+		
+		String xml = "<configuration><lexica><word_clusters field=\"word_form\" format=\"indexed\">"+file.getAbsolutePath()+"</word_clusters></lexica></configuration>";
+		GlobalLexica<NLPNode> lexica = new GlobalLexica<>(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+		assertNull(lexica.getWordClusters());
+		assertTrue(lexica.getIndexedWordClusters().getLexicon() instanceof IndexedLexicon);
+		
+		NLPNode[] nodes = {new NLPNode(), new NLPNode(1, "run"), new NLPNode(2, "the"), new NLPNode(3, "fast")};
+		lexica.process(nodes);
+		assertEquals(map.get("run"), nodes[1].getWordClusters());
+		assertEquals(map.get("the"), nodes[2].getWordClusters());
+		assertNull(nodes[3].getWordClusters());
+		assertNull(nodes[1].getWordClusterLexicon());
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class WordClusterLexiconTest
+{
+	@Test
+	public void test()
+	{
+		Map<String,Set<String>> map = new HashMap<>();
+		map.put("cat", new HashSet<>(Arrays.asList("10", "1011", "10110")));
+		map.put("dog", new HashSet<>(Arrays.asList("10", "1011", "10110")));
+		map.put("run", new HashSet<>(Arrays.asList("01", "011")));
+		
+		WordClusterLexicon lexicon = WordClusterLexicon.fromMap(map);
+		assertEquals(3, lexicon.size());
+		assertEquals(2, lexicon.getClusterSize());
+		assertEquals(5, lexicon.getPrefixSize());
+		assertEquals(-1, lexicon.getRow("walk"));
+		
+		for (String word : map.keySet())
+			assertEquals(map.get(word), lexicon.getPrefixes(lexicon.getRow(word)));
+		
+		assertArrayEquals(lexicon.getPrefixIds(lexicon.getRow("cat")), lexicon.getPrefixIds(lexicon.getRow("dog")));
+		assertEquals("10110", WordClusterLexicon.decode(lexicon.getPath(lexicon.getRow("cat"))));
+		assertEquals("011"  , WordClusterLexicon.decode(lexicon.getPath(lexicon.getRow("run"))));
+		
+		lexicon = lexicon.filter(Arrays.asList("run", "walk"));
+		assertEquals(1, lexicon.size());
+		assertEquals(map.get("run"), lexicon.getPrefixes(lexicon.getRow("run")));
+	}
+}
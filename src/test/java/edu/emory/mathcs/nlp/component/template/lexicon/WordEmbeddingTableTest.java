@@ -0,0 +1,108 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.lexicon;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class WordEmbeddingTableTest
+{
+	@Test
+	public void test() throws Exception
+	{
+		Map<String,float[]> map = new HashMap<>();
+		map.put("apple" , new float[]{ 1f, 2f, 3f});
+		map.put("banana", new float[]{-1f, 0f, 1f});
+		map.put("cherry", new float[]{ 0.5f, 0.25f, 0.125f});
+		
+		WordEmbeddingTable table = WordEmbeddingTable.fromMap(map);
+		check(map, table);
+		
+		File file = File.createTempFile("embeddings", ".tbl");
+		file.deleteOnExit();
+		table.save(file.getAbsolutePath());
+		
+		check(map, WordEmbeddingTable.map(file.getAbsolutePath()));
+		check(map, WordEmbeddingTable.read(new FileInputStream(file)));
+	}
+	
+	@Test
+	public void testQuantize() throws Exception
+	{
+		Map<String,float[]> map = new HashMap<>();
+		map.put("apple" , new float[]{ 1f, -2f, 0.5f, 0.001f});
+		map.put("banana", new float[]{ 0f,  0f, 0f  , 0f});
+		WordEmbeddingTable table = WordEmbeddingTable.fromMap(map);
+		
+		for (EmbeddingFormat format : new EmbeddingFormat[]{EmbeddingFormat.float16, EmbeddingFormat.int8})
+		{
+			WordEmbeddingTable quantized = table.quantize(format);
+			assertEquals(format, quantized.getFormat());
+			assertEquals(format.getRowBytes(4) * 2, quantized.getByteSize());
+			
+			File file = File.createTempFile("embeddings", ".tbl");
+			file.deleteOnExit();
+			quantized.save(file.getAbsolutePath());
+			quantized = WordEmbeddingTable.map(file.getAbsolutePath());
+			
+			for (String word : map.keySet())
+				assertArrayEquals(map.get(word), quantized.get(word), 0.01f);
+		}
+		
+		assertEquals(-2f, WordEmbeddingTable.HALF_TO_FLOAT[WordEmbeddingTable.toHalf(-2f) & 0xffff], 0f);
+		assertEquals(0.1f, WordEmbeddingTable.HALF_TO_FLOAT[WordEmbeddingTable.toHalf(0.1f) & 0xffff], 1e-4f);
+	}
+	
+	@Test
+	public void testHalfSpecialValues()
+	{
+		assertEquals((short)0x7c00, WordEmbeddingTable.toHalf(Float.POSITIVE_INFINITY));
+		assertEquals((short)0xfc00, WordEmbeddingTable.toHalf(Float.NEGATIVE_INFINITY));
+		assertEquals((short)0x7c00, WordEmbeddingTable.toHalf(1e10f));
+		
+		for (float f : new float[]{Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NaN, 65504f, -0f})
+			assertEquals(Float.floatToIntBits(f), Float.floatToIntBits(WordEmbeddingTable.HALF_TO_FLOAT[WordEmbeddingTable.toHalf(f) & 0xffff]));
+	}
+	
+	void check(Map<String,float[]> map, WordEmbeddingTable table)
+	{
+		assertEquals(3, table.size());
+		assertEquals(3, table.getDimension());
+		assertEquals(-1, table.getRow("durian"));
+		assertNull(table.get("durian"));
+		
+		for (String word : map.keySet())
+			assertArrayEquals(map.get(word), table.get(word), 0f);
+		
+		float[] v = new float[7];
+		table.copy(table.getRow("banana"), v, 4);
+		assertArrayEquals(new float[]{0f, 0f, 0f, 0f, -1f, 0f, 1f}, v, 0f);
+		
+		table.add(table.getRow("apple"), v);
+		assertArrayEquals(new float[]{1f, 2f, 3f, 0f, -1f, 0f, 1f}, v, 0f);
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.node;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.component.template.feature.Field;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class DependencyTreeIndexTest
+{
+	@Test
+	public void test()
+	{
+		Random rand = new Random(1);
+		
+		for (int t=0; t<50; t++)
+		{
+			NLPNode[] nodes = new NLPNode[2 + rand.nextInt(60)];
+			nodes[0] = new NLPNode();
+			
+			// some nodes are left headless to make a forest
+			for (int i=1; i<nodes.length; i++)
+			{
+				nodes[i] = new NLPNode(i, "w"+i, "p"+i);
+				if (rand.nextInt(10) > 0) nodes[i].setDependencyHead(nodes[rand.nextInt(i)], "dep");
+			}
+			
+			Object[][][] expected = collect(nodes);
+			DependencyTreeIndex.attach(nodes);
+			assertNotNull(nodes[nodes.length-1].getTreeIndex());
+			Object[][][] actual = collect(nodes);
+			
+			for (int i=0; i<nodes.length; i++)
+				for (int j=0; j<nodes.length; j++)
+					assertArrayEquals(expected[i][j], actual[i][j]);
+			
+			nodes[nodes.length-1].setDependencyHead(nodes[0], "root");
+			for (NLPNode node : nodes) assertNull(node.getTreeIndex());
+		}
+	}
+	
+	private Object[][][] collect(NLPNode[] nodes)
+	{
+		Object[][][] results = new Object[nodes.length][nodes.length][];
+		
+		for (NLPNode a : nodes)
+		{
+			for (NLPNode b : nodes)
+			{
+				Set<NLPNode> descendants = new HashSet<>(a.getDescendantList(b.getID() % 4));
+				results[a.getID()][b.getID()] = new Object[]{a.isDescendantOf(b), a.getLowestCommonAncestor(b), a.getPath(b, Field.part_of_speech_tag), descendants};
+			}
+			
+			List<NLPNode> list = a.getSubNodeList();
+			results[a.getID()][0] = new Object[]{results[a.getID()][0], list, a.getSubNodeIDSortedArray()};
+		}
+		
+		return results;
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.common.util.Splitter;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class FeatMapTest
+{
+	@Test
+	public void test()
+	{
+		assertSame(FeatMap.EMPTY, FeatMap.create("_"));
+		assertTrue(new FeatMap("_").isEmpty());
+		
+		FeatMap map = FeatMap.create("pos=VBD|sem=a|bad");
+		assertEquals(2, map.size());
+		assertEquals("VBD", map.get("pos"));
+		assertEquals("pos=VBD|sem=a", map.toString());
+		
+		assertEquals("a", map.put("sem", "b"));
+		assertEquals("VBD", map.remove("pos"));
+		assertNull(map.remove("pos"));
+		assertEquals("sem=b", map.toString());
+		
+		Map<String,String> gold = new HashMap<>(map);
+		
+		for (int i=0; i<20; i++)
+		{
+			map .put("k"+i, Integer.toString(i));
+			gold.put("k"+i, Integer.toString(i));
+		}
+		
+		assertEquals(gold, map);
+		assertEquals("sem=b|k0=0", map.toString().substring(0, 10));
+		
+		map = new FeatMap("a=1|b=2|c=3");
+		Iterator<Entry<String,String>> it = map.entrySet().iterator();
+		it.next().setValue("0");
+		it.next();
+		it.remove();
+		assertEquals("a=0|c=3", map.toString());
+	}
+	
+	@Test
+	public void testNode()
+	{
+		NLPNode node = new NLPNode(1, "A");
+		assertSame(FeatMap.EMPTY, node.feat_map);
+		assertNull(node.removeFeat("a"));
+		node.putFeat("a", "1");
+		assertEquals("1", node.getFeat("a"));
+		assertTrue(FeatMap.EMPTY.isEmpty());
+	}
+	
+	@Test
+	public void testConcurrentParse() throws Exception
+	{
+		StringBuilder build = new StringBuilder("k0=0");
+		for (int i=1; i<12; i++) build.append("|k"+i+"="+i);
+		
+		for (String feats : new String[]{"k0=0|k1=1|k2=2", build.toString()})
+		{
+			for (int n=0; n<200; n++)
+			{
+				FeatMap map = new FeatMap(feats);
+				int size = Splitter.splitPipes(feats).length;
+				ExecutorService executor = Executors.newFixedThreadPool(4);
+				List<Future<Boolean>> futures = new ArrayList<>();
+				
+				for (int t=0; t<4; t++)
+					futures.add(executor.submit(() -> map.size() == size && "2".equals(map.get("k2"))));
+				
+				executor.shutdown();
+				for (Future<Boolean> future : futures) assertTrue(future.get());
+			}
+		}
+	}
+	
+	@Test(expected=UnsupportedOperationException.class)
+	public void testEmpty()
+	{
+		FeatMap.EMPTY.put("a", "1");
+	}
+}
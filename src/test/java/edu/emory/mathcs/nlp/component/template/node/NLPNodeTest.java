@@ -15,9 +15,18 @@
  */
 package edu.emory.mathcs.nlp.component.template.node;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
 import org.junit.Test;
 
 import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.template.lexicon.WordClusterLexicon;
+import edu.emory.mathcs.nlp.component.template.lexicon.WordEmbeddingTable;
 import edu.emory.mathcs.nlp.component.template.reader.NLPReader;
 import edu.emory.mathcs.nlp.component.template.util.NLPLib;
 import junit.framework.Assert;
@@ -82,5 +91,69 @@ public class NLPNodeTest
 		
 		System.out.println(NLPLib.join(nodes, " ", AbstractNLPNode::getWordForm));
 	}
-
+	
+	@Test
+	public void testDependentStorage()
+	{
+		NLPNode[] nodes = new NLPNode[5];
+		nodes[0] = new NLPNode();
+		for (int i=1; i<nodes.length; i++) nodes[i] = new NLPNode(i, "w"+i);
+		
+		Assert.assertTrue(nodes[2].getDependentList().isEmpty());
+		Assert.assertTrue(nodes[2].getSemanticHeadList().isEmpty());
+		
+		// w1 <- w2 -> w4, w3 <- w4
+		nodes[2].addDependent(nodes[4]);
+		nodes[2].addDependent(nodes[1]);
+		nodes[4].addDependent(nodes[3]);
+		Assert.assertEquals(nodes[1], nodes[2].getLeftMostDependent());
+		Assert.assertEquals(nodes[4], nodes[2].getRightMostDependent());
+		Assert.assertEquals(nodes[3], nodes[4].getLeftNearestDependent());
+		Assert.assertNull(nodes[4].getRightNearestDependent());
+		Assert.assertTrue(nodes[3].getDependentList().isEmpty());
+		
+		// w1 <- w2 -> w3 -> w4
+		nodes[3].setDependencyHead(nodes[2]);
+		nodes[4].setDependencyHead(nodes[3]);
+		Assert.assertEquals(nodes[3], nodes[2].getRightNearestDependent());
+		Assert.assertNull(nodes[2].getRightNearestDependent(1));
+		Assert.assertEquals(nodes[4], nodes[3].getRightMostDependent());
+		Assert.assertTrue(nodes[4].getDependentList().isEmpty());
+		Assert.assertNull(nodes[4].getLeftMostDependent());
+		
+		nodes[1].addSemanticHead(nodes[2], "A0");
+		Assert.assertEquals("A0", nodes[1].getSemanticLabel(nodes[2]));
+		Assert.assertEquals(1, nodes[1].clearSemanticHeads().size());
+		Assert.assertTrue(nodes[1].getSemanticHeadList().isEmpty());
+		Assert.assertTrue(nodes[3].getSemanticHeadList().isEmpty());
+	}
+	
+	@Test
+	public void testSerializeLexica() throws Exception
+	{
+		float[] embedding = {1, 2, 3};
+		WordEmbeddingTable table = WordEmbeddingTable.fromMap(Collections.singletonMap("w1", embedding));
+		WordClusterLexicon lexicon = WordClusterLexicon.fromMap(Collections.singletonMap("w1", Arrays.asList("0110", "10")));
+		NLPNode node = new NLPNode(1, "w1");
+		node.setWordEmbedding(table, table.getRow("w1"));
+		node.setWordClusters(lexicon, lexicon.getRow("w1"));
+		
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bout);
+		out.writeObject(node);
+		out.close();
+		
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bout.toByteArray()));
+		NLPNode copy = (NLPNode)in.readObject();
+		in.close();
+		
+		Assert.assertEquals(node.getWordClusters(), copy.getWordClusters());
+		Assert.assertEquals(lexicon, node.word_cluster_lexicon);
+		Assert.assertNull(node.word_clusters);
+		
+		Assert.assertTrue(copy.hasWordEmbedding());
+		Assert.assertTrue(Arrays.equals(embedding, copy.getWordEmbedding()));
+		Assert.assertEquals(table, node.word_embedding_table);
+		Assert.assertNull(node.word_embedding);
+	}
 }
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.pos.POSState;
+import edu.emory.mathcs.nlp.component.template.feature.Field;
+import edu.emory.mathcs.nlp.component.template.feature.Relation;
+import edu.emory.mathcs.nlp.component.template.reader.NLPReader;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class SentenceColumnsTest
+{
+	@Test
+	public void test() throws Exception
+	{
+		NLPReader reader = new NLPReader(1, 2, 3, 4, 5, 6, 7, 8);
+		reader.open(IOUtils.createFileInputStream("src/test/resources/dat/sample-dev.tsv"));
+		NLPNode[] nodes;
+		
+		while ((nodes = reader.next()) != null)
+		{
+			POSState<NLPNode> state = new POSState<>(nodes);
+			state.initColumns();
+			SentenceColumns<NLPNode> columns = state.getColumns();
+			
+			for (NLPNode node : nodes)
+			{
+				for (Relation relation : Relation.values())
+					assertSame(relation+" "+node.getID(), relationOf(node, relation), state.getRelativeNode(node, relation));
+				
+				for (Field field : Field.values())
+				{
+					if (SentenceColumns.isColumnar(field))
+						assertEquals(node.getValue(field), columns.getValue(field, node.getID()));
+					
+					assertEquals(node.getValue(field), state.getValue(node, field));
+				}
+			}
+			
+			assertFalse(columns.contains(new NLPNode(1, "A")));
+		}
+		
+		reader.close();
+	}
+	
+	private NLPNode relationOf(NLPNode node, Relation relation)
+	{
+		switch (relation)
+		{
+		case h   : return node.getDependencyHead();
+		case h2  : return node.getGrandDependencyHead();
+		case lmd : return node.getLeftMostDependent();
+		case lmd2: return node.getLeftMostDependent(1);
+		case lnd : return node.getLeftNearestDependent();
+		case lnd2: return node.getLeftNearestDependent(1);
+		case lns : return node.getLeftNearestSibling();
+		case lns2: return node.getLeftNearestSibling(1);
+		case rmd : return node.getRightMostDependent();
+		case rmd2: return node.getRightMostDependent(1);
+		case rnd : return node.getRightNearestDependent();
+		case rnd2: return node.getRightNearestDependent(1);
+		case rns : return node.getRightNearestSibling();
+		case rns2: return node.getRightNearestSibling(1);
+		default  : return null;
+		}
+	}
+}
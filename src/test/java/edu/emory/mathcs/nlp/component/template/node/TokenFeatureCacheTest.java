@@ -0,0 +1,58 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.component.template.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.component.template.feature.Field;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class TokenFeatureCacheTest
+{
+	@Test
+	public void test()
+	{
+		NLPNode[] nodes = {new NLPNode(), new NLPNode(1, "John"), new NLPNode(2, "runs")};
+		TokenFeatureCache<NLPNode> cache = TokenFeatureCache.attach(nodes);
+		assertSame(cache, TokenFeatureCache.attach(nodes));
+		
+		assertSame(TokenFeatureCache.MISSING, cache.get(nodes[1], Object.class, Field.prefix, 2, false));
+		cache.put(nodes[1], Object.class, Field.prefix, 2, false, "Jo");
+		cache.put(nodes[2], Object.class, Field.prefix, 2, false, null);
+		assertEquals("Jo", cache.get(nodes[1], Object.class, Field.prefix, 2, false));
+		assertNull(cache.get(nodes[2], Object.class, Field.prefix, 2, false));
+		assertSame(TokenFeatureCache.MISSING, cache.get(nodes[1], Object.class, Field.prefix, 3, false));
+		assertSame(TokenFeatureCache.MISSING, cache.get(nodes[1], Object.class, Field.prefix, 2, true));
+		assertSame(TokenFeatureCache.MISSING, cache.get(nodes[1], String.class, Field.prefix, 2, false));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(4, cache.getMissCount());
+		
+		nodes[1].set(1, "Mary", null, null, null, null, null, null);
+		assertFalse(cache.contains(nodes[1]));
+		assertSame(TokenFeatureCache.MISSING, cache.get(nodes[1], Object.class, Field.prefix, 2, false));
+		
+		nodes[2].reset();
+		assertFalse(cache.contains(nodes[2]));
+		assertFalse(cache.contains(new NLPNode(1, "John")));
+	}
+}
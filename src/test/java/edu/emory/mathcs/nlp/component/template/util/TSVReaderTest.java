@@ -15,6 +15,17 @@
  */
 package edu.emory.mathcs.nlp.component.template.util;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
 import edu.emory.mathcs.nlp.common.util.IOUtils;
 import edu.emory.mathcs.nlp.component.template.node.NLPNode;
 import edu.emory.mathcs.nlp.component.template.reader.NLPReader;
@@ -51,4 +62,35 @@ public class TSVReaderTest
 				
 		reader.close();
 	}
+	
+	@Test
+	public void testRecycle() throws Exception
+	{
+		final String filename = "src/test/resources/dat/sample-dev.tsv";
+		TSVReader<NLPNode> reader = new NLPReader(1, 2, 3, 4, 5, 6, 7, 8);
+		List<String> gold = new ArrayList<>();
+		NLPNode[] nodes, prev;
+		
+		reader.open(IOUtils.createFileInputStream(filename));
+		while ((nodes = reader.next()) != null) gold.add(Arrays.toString(nodes));
+		reader.close();
+		
+		reader.setRecycle(true, 1000);
+		reader.open(IOUtils.createFileInputStream(filename));
+		prev = reader.next();
+		NLPNode node = prev[1];
+		prev[1].setStopWord(true);
+		reader.release(prev);
+		assertNull(prev[0]);
+		
+		for (int i=1; (nodes = reader.next()) != null; i++)
+		{
+			assertEquals(gold.get(i), Arrays.toString(nodes));
+			for (NLPNode n : nodes) assertFalse(n.isStopWord());
+			if (i == 1) assertTrue(Arrays.stream(nodes).anyMatch(n -> n == node));
+			reader.release(nodes);
+		}
+		
+		reader.close();
+	}
 }
@@ -16,9 +16,13 @@
 package edu.emory.mathcs.nlp.learning.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+
 /**
  * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
  */
@@ -53,4 +57,49 @@ public class FeatureMapTest
 		assertEquals(-1, map.index(0, "D"));
 		assertEquals(-1, map.index(2, "A"));
 	}
+	
+	@Test
+	public void testFreeze() throws Exception
+	{
+		// "Aa" and "BB" share the same hash code; "\uD800" is an unpaired surrogate
+		String[] values = {"A", "Aa", "BB", "", "caf\u00E9", "\u4E2D\u6587", "\uD83D\uDE00!", "\uD800"};
+		FeatureMap map = new FeatureMap();
+		
+		for (int type=0; type<3; type++)
+			for (String value : values) map.add(type, value);
+		
+		for (int i=0; i<10000; i++) map.add(3, "w"+i);
+		
+		FeatureMap frozen = (FeatureMap)IOUtils.fromByteArray(IOUtils.toByteArray(map));
+		frozen.freeze();
+		assertTrue(frozen.isFrozen());
+		frozen = (FeatureMap)IOUtils.fromByteArray(IOUtils.toByteArray(frozen));
+		assertEquals(map.size(), frozen.size());
+		
+		for (int type=0; type<4; type++)
+		{
+			for (String value : values)
+				assertEquals(map.index(type, value), frozen.index(type, value));
+		}
+		
+		for (int i=0; i<10000; i++)
+			assertEquals(map.index(3, "w"+i), frozen.index(3, "w"+i));
+		
+		assertEquals(-1, frozen.index(0, "B"));
+		assertEquals(-1, frozen.index(0, "caf"));
+		assertEquals(-1, frozen.index(0, "caf\u00E9s"));
+		assertEquals(-1, frozen.index(4, "A"));
+		
+		// the index maps are restored once a feature is added
+		assertEquals(map.size(), frozen.add(0, "D"));
+		assertFalse(frozen.isFrozen());
+		assertEquals(map.index(2, "\uD83D\uDE00!"), frozen.index(2, "\uD83D\uDE00!"));
+		assertEquals(map.index(1, "BB"), frozen.index(1, "BB"));
+		assertEquals(map.getMaxIndex() + 1, frozen.getMaxIndex());
+		
+		FrozenFeatureMap f = new FrozenFeatureMap(map.getIndexMaps());
+		assertEquals(map.index(1, "caf\u00E9"), f.index(1, new StringBuilder("caf\u00E9")));
+		assertEquals(map.index(1, "Aa"), f.index(1, "Aa", "Aa".hashCode()));
+		assertEquals(-1, f.index(1, null));
+	}
 }
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class InstanceCacheTest
+{
+	@Test
+	public void test() throws Exception
+	{
+		InstanceCache cache = new InstanceCache(100);
+		record(cache, "a");
+		record(cache, "b");
+		assertTrue(cache.getMemorySize() <= 100);
+		assertEquals(1, cache.getSpilledSize());
+		
+		check(cache.getReader("a"));
+		check(cache.getReader("b"));
+		check(cache.getReader("b"));
+		
+		cache.begin("c");
+		assertFalse(cache.contains("c"));
+		assertNull(cache.getReader("c"));
+		cache.clear();
+		assertFalse(cache.contains("a"));
+		assertEquals(0, cache.getSpilledSize());
+	}
+	
+	@Test
+	public void testSpill() throws Exception
+	{
+		// the block is streamed to the file in segments once it exceeds the memory limit
+		InstanceCache cache = new InstanceCache(100, 16);
+		cache.begin("a");
+		for (int i=0; i<50; i++) addSequences(cache);
+		assertEquals(0, cache.getMemorySize());
+		cache.end();
+		
+		assertTrue(cache.contains("a"));
+		assertEquals(0, cache.getMemorySize());
+		assertEquals(1, cache.getSpilledSize());
+		
+		InstanceCache.Reader in = cache.getReader("a");
+		for (int i=0; i<50; i++) checkSequences(in);
+		assertFalse(in.hasNext());
+		
+		// a block spilled before it is finished is discarded
+		cache.begin("b");
+		for (int i=0; i<50; i++) addSequences(cache);
+		cache.begin("c");
+		assertFalse(cache.contains("b"));
+		assertEquals(1, cache.getSpilledSize());
+		cache.clear();
+	}
+	
+	private void record(InstanceCache cache, String key)
+	{
+		cache.begin(key);
+		addSequences(cache);
+		cache.end();
+		assertTrue(cache.contains(key));
+	}
+	
+	private void addSequences(InstanceCache cache)
+	{
+		SparseVector x = new SparseVector();
+		x.add(3);
+		x.add(7);
+		
+		SparseVector y = new SparseVector();
+		y.add(2, 0.5f);
+		
+		cache.add(new Instance(1, x));
+		cache.add(new Instance(0, y, new float[]{0.1f, 0.2f}));
+		cache.endSequence();
+		cache.endSequence();
+		cache.add(new Instance(2, new SparseVector()));
+		cache.endSequence();
+	}
+	
+	private void check(InstanceCache.Reader in)
+	{
+		checkSequences(in);
+		assertFalse(in.hasNext());
+	}
+	
+	private void checkSequences(InstanceCache.Reader in)
+	{
+		assertTrue(in.hasNext());
+		Instance instance = in.next();
+		assertEquals(1, instance.getGoldLabel());
+		assertEquals("3:1.0 7:1.0", instance.getFeatureVector().getSparseVector().toString());
+		assertNull(instance.getFeatureVector().getDenseVector());
+		
+		instance = in.next();
+		assertEquals(0, instance.getGoldLabel());
+		assertEquals("2:0.5", instance.getFeatureVector().getSparseVector().toString());
+		assertArrayEquals(new float[]{0.1f, 0.2f}, instance.getFeatureVector().getDenseVector(), 0f);
+		assertNull(in.next());
+		
+		assertTrue(in.hasNext());
+		assertNull(in.next());
+		
+		assertTrue(in.hasNext());
+		assertEquals(0, in.next().getFeatureVector().getSparseVector().size());
+		assertNull(in.next());
+	}
+}
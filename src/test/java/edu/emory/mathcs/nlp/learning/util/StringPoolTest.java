@@ -0,0 +1,71 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import edu.emory.mathcs.nlp.common.util.IOUtils;
+import edu.emory.mathcs.nlp.component.template.node.NLPNode;
+import edu.emory.mathcs.nlp.component.template.reader.NLPReader;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class StringPoolTest
+{
+	@Test
+	public void test()
+	{
+		StringPool pool = new StringPool(2);
+		String a = new String("NN");
+		
+		assertNull(pool.get(null));
+		assertSame(a, pool.get(a));
+		assertSame(a, pool.get(new String("NN")));
+		pool.get("VB");
+		
+		String b = new String("JJ");
+		assertSame(b, pool.get(b));
+		assertNotSame(b, pool.get(new String("JJ")));
+		assertEquals(2, pool.size());
+	}
+	
+	@Test
+	public void testReader() throws Exception
+	{
+		NLPReader reader = new NLPReader(1, 2, 3, 4, 5, 6, 7, 8);
+		assertNull(reader.lemma_pool);
+		StringPool lemmas = reader.lemma_pool = new StringPool(1 << 10);
+		reader.open(IOUtils.createFileInputStream("src/test/resources/dat/sample-dev.tsv"));
+		NLPNode[] n1 = reader.next(), n2 = reader.next();
+		reader.close();
+		
+		// Students_1/NNS, families_7/NNS
+		assertSame(n1[1].getPartOfSpeechTag(), n1[7].getPartOfSpeechTag());
+		assertSame(n1[1].getDependencyLabel(), StringPool.LABELS.get(new String(n1[1].getDependencyLabel())));
+		assertSame(n1[2].getLemma(), lemmas.get(new String("will")));
+		assertSame(n1[2].getPartOfSpeechTag(), StringPool.LABELS.get(new String(n1[2].getPartOfSpeechTag())));
+		
+		LabelMap map = new LabelMap();
+		map.add(new String(n2[1].getPartOfSpeechTag()));
+		assertSame(n2[1].getPartOfSpeechTag(), map.getLabel(0));
+	}
+}
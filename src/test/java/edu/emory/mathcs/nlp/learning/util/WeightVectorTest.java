@@ -0,0 +1,61 @@
+/**
+ * Copyright 2016, Emory University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.emory.mathcs.nlp.learning.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * @author Jinho D. Choi ({@code jinho.choi@emory.edu})
+ */
+public class WeightVectorTest
+{
+	@Test
+	public void testSubsetScores()
+	{
+		WeightVector w = new WeightVector();
+		Random rand = new Random(1);
+		w.expand(6, 3, 5);
+		
+		for (boolean sparse : new boolean[]{true, false})
+		{
+			MajorVector v = w.getMajorVector(sparse);
+			for (int i=0; i<v.size(); i++) v.set(i, rand.nextFloat());
+		}
+		
+		SparseVector s = new SparseVector();
+		s.add(1);
+		s.add(4, 0.5f);
+		s.add(7);	// unseen feature
+		FeatureVector x = new FeatureVector(s, new float[]{0.2f, 0.3f, 0.4f});
+		
+		int[] labels = {1, 3, 4};
+		float[] all = w.scores(x);
+		float[] sub = w.scores(x, labels);
+		
+		for (int y=0; y<all.length; y++)
+			assertEquals((y == 1 || y >= 3) ? all[y] : 0, sub[y], 1e-6);
+		
+		assertArrayEquals(all, w.scores(x, null), 0);
+		assertEquals(MLUtils.argmax(sub, labels), MLUtils.argmax(sub, new IntArrayList(labels)));
+	}
+}